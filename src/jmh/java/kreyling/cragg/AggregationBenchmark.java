@@ -0,0 +1,53 @@
+package kreyling.cragg;
+
+import kreyling.cragg.Main.AggregatedReport;
+import kreyling.cragg.Main.AggregatedReportBuilder;
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.JenkinsRequestProcessor;
+import kreyling.cragg.Main.TestReport;
+import ratpack.func.Pair;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class AggregationBenchmark {
+    @Param({"100", "1000"})
+    int numberOfFeatures;
+
+    @Param({"50", "500"})
+    int numberOfBuilds;
+
+    JenkinsRequestProcessor jenkinsRequestProcessor = new JenkinsRequestProcessor(null, null, Optional.empty(), null, null);
+    List<Pair<Build, TestReport>> pairs;
+    AggregatedReport aggregatedReport;
+
+    @Setup
+    public void createReports() {
+        pairs = SyntheticReports.buildsWithTestReports(numberOfFeatures, numberOfBuilds);
+        aggregatedReport = jenkinsRequestProcessor.aggregateTestReports(pairs);
+    }
+
+    @Benchmark
+    public AggregatedReport aggregateTestReports() {
+        return jenkinsRequestProcessor.aggregateTestReports(pairs);
+    }
+
+    @Benchmark
+    public String buildHtml() {
+        return new AggregatedReportBuilder("https://jenkins/", SyntheticReports.JOB_PATH, Optional.empty())
+            .buildHtml(aggregatedReport);
+    }
+}
@@ -0,0 +1,51 @@
+package kreyling.cragg;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.JenkinsRequestProcessor;
+
+import org.jdom2.input.SAXBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BuildInformationBenchmark {
+    @Param({"startedByUser.xml", "startedByJob.xml", "startedByTwoDifferentJobs.xml", "startedByScmChange.xml"})
+    String buildInformation;
+
+    JenkinsRequestProcessor jenkinsRequestProcessor = new JenkinsRequestProcessor(null, null, Optional.empty(), null, null);
+    JenkinsXmlParser jenkinsXmlParser = new JenkinsXmlParser();
+    BuildReference buildReference = new BuildReference("1494", SyntheticReports.JOB_PATH);
+    String text;
+
+    @Setup
+    public void readBuildInformation() throws Exception {
+        byte[] bytes = Files.readAllBytes(Paths.get(getClass().getResource("/buildinformation/" + buildInformation).toURI()));
+        text = new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Build parseDocumentWithXPath() throws Exception {
+        return jenkinsRequestProcessor.parseBuildInfo(new SAXBuilder().build(new StringReader(text)), buildReference);
+    }
+
+    @Benchmark
+    public Build parseWithStax() {
+        return jenkinsXmlParser.parseBuildInfo(text, buildReference);
+    }
+}
@@ -0,0 +1,45 @@
+package kreyling.cragg;
+
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.JenkinsRequestProcessor;
+import kreyling.cragg.Main.TestReport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OverviewPageBenchmark {
+    @Param({"100", "1000"})
+    int numberOfFeatures;
+
+    JenkinsRequestProcessor jenkinsRequestProcessor = new JenkinsRequestProcessor(null, null, Optional.empty(), null, null);
+    OverviewPageParser overviewPageParser = new OverviewPageParser();
+    BuildReference buildReference = new BuildReference("1494", SyntheticReports.JOB_PATH);
+    String html;
+
+    @Setup
+    public void createPage() {
+        html = SyntheticReports.overviewPage(numberOfFeatures, buildReference.number);
+    }
+
+    @Benchmark
+    public TestReport repairAndParseDocument() {
+        return jenkinsRequestProcessor.parseTestReport(jenkinsRequestProcessor.repairHtml(html), buildReference);
+    }
+
+    @Benchmark
+    public TestReport scanPage() {
+        return overviewPageParser.parse(html, buildReference);
+    }
+}
@@ -0,0 +1,138 @@
+package kreyling.cragg;
+
+import static java.util.Optional.empty;
+import static kreyling.cragg.Metrics.METRICS;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.NullBuild;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Metrics.Counter;
+import lombok.Value;
+import ratpack.exec.Blocking;
+import ratpack.exec.Promise;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed data of finished builds, which never changes on the Jenkins side. Bounded in size, the least recently used
+ * entries are evicted first. Misses fall through to the {@link SnapshotStore}, so a restarted process starts warm.
+ * Builds are kept per Jenkins host, as jobs of the same name on different hosts are different jobs.
+ * <p>
+ * Also keeps the builds of each job's last job page, shown if the job page can't be fetched in time.
+ */
+class BuildCache {
+    private static final Counter LOOKUPS = METRICS.counter("cragg_build_cache_lookups_total",
+        "Lookups of finished builds, answered from memory (hit), from the snapshot store (snapshot) or not at all (miss)",
+        "cache", "result");
+
+    private final Map<Key, Build> builds;
+    private final Map<Key, TestReport> testReports;
+    private final SnapshotStore snapshotStore;
+    private final Map<String, List<BuildReference>> jobBuilds = new ConcurrentHashMap<>();
+
+    BuildCache(int maxEntries, SnapshotStore snapshotStore) {
+        this.builds = lruMap(maxEntries);
+        this.testReports = lruMap(maxEntries);
+        this.snapshotStore = snapshotStore;
+    }
+
+    Promise<Optional<Build>> getBuild(String host, BuildReference buildReference) {
+        Key key = new Key(host, buildReference);
+        Build build = builds.get(key);
+        if (build != null) return hit("build", Optional.of(build));
+        if (!snapshotStore.isEnabled()) return miss("build");
+
+        return Blocking.get(() -> snapshotStore.readBuild(host, buildReference))
+            .map(storedBuild -> {
+                storedBuild.ifPresent(it -> builds.put(key, it));
+                LOOKUPS.inc("build", storedBuild.isPresent() ? "snapshot" : "miss");
+                return storedBuild;
+            });
+    }
+
+    Promise<Build> putBuild(String host, Build build) {
+        if (build instanceof NullBuild) return Promise.value(build);
+        if (build.building) return Promise.value(build);
+
+        builds.put(new Key(host, build.buildReference), build);
+        if (!snapshotStore.isEnabled()) return Promise.value(build);
+
+        return Blocking.get(() -> {
+            snapshotStore.writeBuild(host, build);
+            return build;
+        });
+    }
+
+    Promise<Optional<TestReport>> getTestReport(String host, BuildReference buildReference) {
+        Key key = new Key(host, buildReference);
+        TestReport testReport = testReports.get(key);
+        if (testReport != null) return hit("test_report", Optional.of(testReport));
+        if (!snapshotStore.isEnabled()) return miss("test_report");
+
+        return Blocking.get(() -> snapshotStore.readTestReport(host, buildReference))
+            .map(storedTestReport -> {
+                storedTestReport.ifPresent(it -> testReports.put(key, it));
+                LOOKUPS.inc("test_report", storedTestReport.isPresent() ? "snapshot" : "miss");
+                return storedTestReport;
+            });
+    }
+
+    // The report of a running build isn't its final one
+    Promise<TestReport> putTestReport(String host, Build build, TestReport testReport) {
+        if (testReport == null) return Promise.value(testReport);
+        if (build instanceof NullBuild) return Promise.value(testReport);
+        if (build.building) return Promise.value(testReport);
+
+        // Known already, i.e. answered from this cache
+        if (testReports.put(new Key(host, build.buildReference), testReport) == testReport) {
+            return Promise.value(testReport);
+        }
+        if (!snapshotStore.isEnabled()) return Promise.value(testReport);
+
+        return Blocking.get(() -> {
+            snapshotStore.writeTestReport(host, build.buildReference, testReport);
+            return testReport;
+        });
+    }
+
+    Optional<List<BuildReference>> getJobBuilds(String host, String jobPath) {
+        return Optional.ofNullable(jobBuilds.get(host + jobPath));
+    }
+
+    void putJobBuilds(String host, String jobPath, List<BuildReference> buildReferences) {
+        jobBuilds.put(host + jobPath, buildReferences);
+    }
+
+    private static <T> Promise<Optional<T>> hit(String cache, Optional<T> value) {
+        LOOKUPS.inc(cache, "hit");
+        return Promise.value(value);
+    }
+
+    private static <T> Promise<Optional<T>> miss(String cache) {
+        LOOKUPS.inc(cache, "miss");
+        return Promise.value(empty());
+    }
+
+    @Value
+    private static class Key {
+        String host;
+        BuildReference buildReference;
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package kreyling.cragg;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import kreyling.cragg.Main.BuildReference;
+import lombok.Value;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * A build event posted by Jenkins' notification plugin, e.g.
+ * <pre>
+ * {"name":"e2e-tests","url":"job/e2e-tests/","build":{"number":1495,"phase":"COMPLETED","status":"FAILURE",...}}
+ * </pre>
+ * Only the job's path, the build's number and phase, and the build's full URL, telling the Jenkins host, are read.
+ */
+@Value
+class BuildNotification {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    String jobPath;
+    String buildNumber;
+    String phase;
+    // Only sent if Jenkins' root URL is configured
+    Optional<String> buildUrl;
+
+    // The plugin posts COMPLETED once the result is known and FINALIZED after the post build steps
+    boolean isFinished() {
+        return phase.equals("COMPLETED") || phase.equals("FINALIZED");
+    }
+
+    // Without the build's URL, the host can't be told and any job of that path matches
+    boolean isOf(JobConfig jobConfig) {
+        return jobConfig.getJenkinsJob().equals(jobPath)
+            && buildUrl.map(url -> url.startsWith(jobConfig.getHost() + jobPath)).orElse(true);
+    }
+
+    BuildReference getBuildReference() {
+        return new BuildReference(buildNumber, jobPath);
+    }
+
+    static Optional<BuildNotification> parse(String text) {
+        try (JsonParser parser = jsonFactory.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return Optional.empty();
+
+            String jobPath = null;
+            String buildNumber = null;
+            String phase = null;
+            String buildUrl = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+
+                if (fieldName.equals("url")) {
+                    jobPath = parser.getText();
+                } else if (fieldName.equals("build") && parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String buildFieldName = parser.getCurrentName();
+                        parser.nextToken();
+
+                        // Only numbers, the build number ends up in URLs and file names
+                        if (buildFieldName.equals("number") && parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                            buildNumber = parser.getText();
+                        } else if (buildFieldName.equals("phase")) {
+                            phase = parser.getText();
+                        } else if (buildFieldName.equals("full_url")) {
+                            buildUrl = parser.getText();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (isBlank(jobPath) || isBlank(buildNumber) || isBlank(phase)) return Optional.empty();
+            return Optional.of(new BuildNotification(jobPath.endsWith("/") ? jobPath : jobPath + "/", buildNumber, phase,
+                Optional.ofNullable(buildUrl).filter(url -> !isBlank(url))));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
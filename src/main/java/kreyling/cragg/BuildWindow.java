@@ -0,0 +1,95 @@
+package kreyling.cragg;
+
+import static java.util.Collections.emptyList;
+import static java.util.Optional.empty;
+import static kreyling.cragg.TestResultMatrix.compareBuildNumbers;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import kreyling.cragg.Main.BuildReference;
+import lombok.Value;
+import ratpack.util.MultiValueMap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The builds of a job shown on one page, e.g. {@code ?last=30&before=1500} for the 30 builds before build 1500. Only
+ * these are fetched and aggregated, so the cost of a page does not grow with the history Jenkins keeps. Without
+ * {@code last} the window size is {@link #DEFAULT_SIZE}, 0 shows all builds.
+ */
+@Value
+class BuildWindow {
+    public static final int DEFAULT_SIZE = Integer.getInteger("cragg.buildWindow", 0);
+
+    static final BuildWindow ALL = new BuildWindow(empty(), empty());
+
+    Optional<Integer> last;
+    Optional<String> before;
+
+    static BuildWindow of(MultiValueMap<String, String> queryParams) {
+        return of(queryParams.get("last"), queryParams.get("before"));
+    }
+
+    static BuildWindow of(String lastParameter, String before) {
+        Optional<Integer> last = Optional.ofNullable(lastParameter)
+            .filter(value -> value.matches("\\d{1,9}"))
+            .map(Integer::parseInt);
+        if (!last.isPresent() && DEFAULT_SIZE > 0) last = Optional.of(DEFAULT_SIZE);
+
+        return new BuildWindow(last.filter(size -> size > 0), isBlank(before) ? empty() : Optional.of(before));
+    }
+
+    boolean isUnbounded() {
+        return !last.isPresent() && !before.isPresent();
+    }
+
+    Selection select(List<BuildReference> buildReferences) {
+        if (isUnbounded()) return new Selection(buildReferences, empty(), empty());
+
+        List<BuildReference> sorted = new ArrayList<>(buildReferences);
+        sorted.sort(Comparator.comparing(BuildReference::getNumber, TestResultMatrix::compareBuildNumbers));
+
+        int end = before.map(beforeBuildNumber -> firstIndexNotBefore(sorted, beforeBuildNumber)).orElse(sorted.size());
+        int start = last.map(size -> Math.max(0, end - size)).orElse(0);
+        int windowSize = last.orElse(end - start);
+
+        // Links keep the size of this window, also if it was only bounded by before
+        Optional<String> olderQuery = start > 0 ? Optional.of(query(windowSize, sorted.get(start).number)) : empty();
+        Optional<String> newerQuery = empty();
+        if (end < sorted.size()) {
+            newerQuery = Optional.of(windowSize > 0 && end + windowSize < sorted.size()
+                ? query(windowSize, sorted.get(end + windowSize).number)
+                : query(windowSize, null));
+        }
+
+        return new Selection(new ArrayList<>(sorted.subList(start, end)), olderQuery, newerQuery);
+    }
+
+    private static int firstIndexNotBefore(List<BuildReference> sorted, String beforeBuildNumber) {
+        int index = 0;
+        while (index < sorted.size() && compareBuildNumbers(sorted.get(index).number, beforeBuildNumber) < 0) index++;
+        return index;
+    }
+
+    private static String query(int size, String beforeBuildNumber) {
+        List<String> parameters = new ArrayList<>();
+        if (size > 0) parameters.add("last=" + size);
+        if (beforeBuildNumber != null) parameters.add("before=" + beforeBuildNumber);
+        return "?" + String.join("&", parameters);
+    }
+
+    /**
+     * The builds in the window, and the queries of the windows before and after it, if there are any builds there.
+     */
+    @Value
+    static class Selection {
+        // For pages not built from a window, e.g. in benchmarks
+        static final Selection NONE = new Selection(emptyList(), empty(), empty());
+
+        List<BuildReference> buildReferences;
+        Optional<String> olderQuery;
+        Optional<String> newerQuery;
+    }
+}
@@ -0,0 +1,92 @@
+package kreyling.cragg;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Promise;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Limits the number of concurrent calls, further calls wait in a queue. The limit adapts to the observed behaviour
+ * (AIMD): each fast and successful call raises it by {@code 1 / limit}, i.e. by about one per round trip, each failed,
+ * overloaded or slow call halves it. It always stays between the configured minimum and maximum.
+ * <p>
+ * Calls failing together are one overload, not many: the limit is halved only for calls started after the last
+ * decrease.
+ */
+class ConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+
+    private final Queue<Downstream<? super Long>> waiting = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseAt = System.nanoTime();
+
+    ConcurrencyLimiter(int minLimit, int maxLimit, long latencyThresholdMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.limit = maxLimit;
+    }
+
+    <T> Promise<T> limit(Promise<T> call, Predicate<T> isOverloaded) {
+        return Promise.<Long>async(this::acquire)
+            .flatMap(startedAt -> call.wiretap(result ->
+                release(startedAt, result.isError() || isOverloaded.test(result.getValue()))
+            ));
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    private void acquire(Downstream<? super Long> downstream) {
+        synchronized (this) {
+            if (inFlight >= (int) limit) {
+                waiting.add(downstream);
+                return;
+            }
+            inFlight++;
+        }
+        downstream.success(System.nanoTime());
+    }
+
+    private void release(long startedAt, boolean failed) {
+        long releasedAt = System.nanoTime();
+        long latency = releasedAt - startedAt;
+
+        List<Downstream<? super Long>> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+
+            if (failed || latency > latencyThresholdNanos) {
+                if (startedAt - lastDecreaseAt >= 0) {
+                    limit = Math.max(minLimit, limit / 2);
+                    lastDecreaseAt = releasedAt;
+                }
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+
+            while (inFlight < (int) limit && !waiting.isEmpty()) {
+                granted.add(waiting.poll());
+                inFlight++;
+            }
+        }
+        granted.forEach(downstream -> downstream.success(System.nanoTime()));
+    }
+}
@@ -0,0 +1,143 @@
+package kreyling.cragg;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the JSON result file written by cucumber (the input of the cucumber reports plugin) in a single streaming
+ * pass, counting the steps per feature the same way the plugin's overview page does.
+ */
+class CucumberJsonParser {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    TestReport parse(String text, BuildReference buildReference) {
+        // Jenkins answers with an HTML page if the build has no such artifact
+        if (isBlank(text) || !text.trim().startsWith("[")) return null;
+
+        try (JsonParser parser = jsonFactory.createParser(text)) {
+            List<TestReportLine> testReportLines = new ArrayList<>();
+
+            expect(parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                testReportLines.add(parseFeature(parser));
+            }
+
+            if (testReportLines.isEmpty()) return null;
+
+            return new TestReport(buildReference.number, testReportLines);
+        } catch (IOException e) {
+            throw new RuntimeException(buildReference + ": " + e.getMessage(), e);
+        }
+    }
+
+    private TestReportLine parseFeature(JsonParser parser) throws IOException {
+        String name = null;
+        String uri = "";
+        StepCounts stepCounts = new StepCounts();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+
+            if (fieldName.equals("name")) {
+                name = parser.getText();
+            } else if (fieldName.equals("uri")) {
+                uri = parser.getText();
+            } else if (fieldName.equals("elements") && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    parseElement(parser, stepCounts);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return new TestReportLine(
+            new Feature(name, featureLink(uri)),
+            String.valueOf(stepCounts.failed),
+            String.valueOf(stepCounts.skipped),
+            String.valueOf(stepCounts.total),
+            stepCounts.total == stepCounts.passed ? "Passed" : "Failed"
+        );
+    }
+
+    private void parseElement(JsonParser parser, StepCounts stepCounts) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+
+            if (fieldName.equals("steps") && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    stepCounts.count(parseStepStatus(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private String parseStepStatus(JsonParser parser) throws IOException {
+        String status = "undefined";
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+
+            if (fieldName.equals("result") && parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String resultFieldName = parser.getCurrentName();
+                    parser.nextToken();
+
+                    if (resultFieldName.equals("status")) {
+                        status = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return status;
+    }
+
+    // The file name the cucumber reports plugin gives the page of a feature
+    private String featureLink(String uri) {
+        return "report-feature_" + uri.replaceAll("[^\\d\\w]", "-") + ".html";
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) throw new IOException("Expected " + expected + " but found " + actual);
+    }
+
+    private static class StepCounts {
+        int total;
+        int passed;
+        int failed;
+        int skipped;
+
+        void count(String status) {
+            total++;
+            if (status.equals("passed")) {
+                passed++;
+            } else if (status.equals("failed")) {
+                failed++;
+            } else if (status.equals("skipped")) {
+                skipped++;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package kreyling.cragg;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import ratpack.exec.ExecResult;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs promises in parallel like {@link ratpack.exec.util.ParallelBatch}, but yields as soon as all of them are done
+ * or the deadline has passed, whichever comes first. Each promise's result is in the list at its index, an error
+ * being a result as well. Promises not done by the deadline are empty, they keep running and their results are
+ * dropped.
+ */
+class DeadlineBatch {
+    static <T> Promise<List<Optional<ExecResult<T>>>> yieldUntil(List<Promise<T>> promises, long deadlineMillis) {
+        return Promise.async(downstream -> {
+            AtomicReferenceArray<ExecResult<T>> results = new AtomicReferenceArray<>(promises.size());
+            AtomicInteger remaining = new AtomicInteger(promises.size());
+            AtomicBoolean yielded = new AtomicBoolean();
+            AtomicReference<ScheduledFuture<?>> deadline = new AtomicReference<>();
+
+            Runnable yieldResults = () -> {
+                if (!yielded.compareAndSet(false, true)) return;
+                if (deadline.get() != null) deadline.get().cancel(false);
+
+                List<Optional<ExecResult<T>>> resultsSoFar = new ArrayList<>(promises.size());
+                for (int i = 0; i < promises.size(); i++) {
+                    resultsSoFar.add(Optional.ofNullable(results.get(i)));
+                }
+                downstream.success(resultsSoFar);
+            };
+
+            if (promises.isEmpty()) {
+                yieldResults.run();
+                return;
+            }
+
+            if (deadlineMillis > 0) {
+                deadline.set(Execution.current().getController().getExecutor()
+                    .schedule(yieldResults, deadlineMillis, MILLISECONDS));
+            }
+
+            for (int i = 0; i < promises.size(); i++) {
+                int index = i;
+                Execution.fork().start(execution -> promises.get(index).result(result -> {
+                    results.set(index, result);
+                    if (remaining.decrementAndGet() == 0) yieldResults.run();
+                }));
+            }
+        });
+    }
+}
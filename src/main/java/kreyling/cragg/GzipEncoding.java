@@ -0,0 +1,179 @@
+package kreyling.cragg;
+
+import static kreyling.cragg.Metrics.METRICS;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import kreyling.cragg.Metrics.Counter;
+import ratpack.http.Request;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip for the streamed dashboard and results, at a configurable level. Every chunk is flushed on its own, so a
+ * browser can render what arrived so far, e.g. the columns of progressive rendering. Static files are left to
+ * Ratpack's own compression.
+ */
+class GzipEncoding {
+    // 1 (fastest) to 9 (smallest), 0 sends the dashboard uncompressed
+    public static final int LEVEL = Integer.getInteger("cragg.gzipLevel", 6);
+
+    private static final Counter OUTPUT_BYTES = METRICS.counter("cragg_gzip_output_bytes_total",
+        "Bytes of gzip compressed dashboards and NDJSON results, see cragg_dashboard_response_bytes_total for the input");
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    static boolean isAccepted(Request request) {
+        return LEVEL > 0 && isAccepted(request.getHeaders().get(HttpHeaderNames.ACCEPT_ENCODING));
+    }
+
+    static boolean isAccepted(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.trim().split(";");
+            if (!parameters[0].trim().equalsIgnoreCase("gzip")) continue;
+
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0*)?")) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static Publisher<ByteBuf> compress(Publisher<ByteBuf> chunks, ByteBufAllocator byteBufAllocator, int level) {
+        return subscriber -> chunks.subscribe(new GzipSubscription(subscriber, byteBufAllocator, level));
+    }
+
+    // Each chunk is compressed into exactly one chunk, the trailer is sent once there is demand for one more
+    private static class GzipSubscription implements Subscriber<ByteBuf>, Subscription {
+        private final Subscriber<? super ByteBuf> downstream;
+        private final ByteBufAllocator byteBufAllocator;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[8192];
+
+        private Subscription upstream;
+        private boolean headerWritten;
+        private long demand;
+        private boolean upstreamCompleted;
+        private boolean finished;
+
+        GzipSubscription(Subscriber<? super ByteBuf> downstream, ByteBufAllocator byteBufAllocator, int level) {
+            this.downstream = downstream;
+            this.byteBufAllocator = byteBufAllocator;
+            this.deflater = new Deflater(level, true);
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(ByteBuf chunk) {
+            byte[] input = new byte[chunk.readableBytes()];
+            chunk.readBytes(input);
+            chunk.release();
+
+            ByteBuf output;
+            synchronized (this) {
+                if (finished) return;
+
+                output = byteBufAllocator.buffer();
+                writeHeaderOnce(output);
+                crc.update(input);
+                deflater.setInput(input);
+                deflate(output, false);
+                demand--;
+            }
+            OUTPUT_BYTES.add(output.readableBytes());
+            downstream.onNext(output);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            synchronized (this) {
+                finished = true;
+                deflater.end();
+            }
+            downstream.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            boolean finish;
+            synchronized (this) {
+                upstreamCompleted = true;
+                finish = demand > 0;
+            }
+            if (finish) finish();
+        }
+
+        @Override
+        public void request(long n) {
+            boolean finish;
+            synchronized (this) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                finish = upstreamCompleted;
+            }
+            if (finish) {
+                finish();
+            } else {
+                upstream.request(n);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                finished = true;
+                deflater.end();
+            }
+            upstream.cancel();
+        }
+
+        private void finish() {
+            ByteBuf output;
+            synchronized (this) {
+                if (finished) return;
+                finished = true;
+
+                output = byteBufAllocator.buffer();
+                writeHeaderOnce(output);
+                deflater.finish();
+                deflate(output, true);
+                output.writeIntLE((int) crc.getValue());
+                output.writeIntLE((int) deflater.getBytesRead());
+                deflater.end();
+            }
+
+            OUTPUT_BYTES.add(output.readableBytes());
+            downstream.onNext(output);
+            downstream.onComplete();
+        }
+
+        private void writeHeaderOnce(ByteBuf output) {
+            if (headerWritten) return;
+            output.writeBytes(HEADER);
+            headerWritten = true;
+        }
+
+        private void deflate(ByteBuf output, boolean finishing) {
+            int length;
+            do {
+                length = deflater.deflate(buffer, 0, buffer.length, finishing ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                output.writeBytes(buffer, 0, length);
+            } while (finishing ? !deflater.finished() : length == buffer.length);
+        }
+    }
+}
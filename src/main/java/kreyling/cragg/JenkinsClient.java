@@ -0,0 +1,448 @@
+package kreyling.cragg;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static kreyling.cragg.Metrics.METRICS;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import kreyling.cragg.Metrics.Counter;
+import kreyling.cragg.Metrics.Histogram;
+import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.Result;
+import ratpack.http.TypedData;
+import ratpack.http.client.HttpClient;
+import ratpack.http.client.ReceivedResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fetches pages from Jenkins, shared by all requests and the background poller. Concurrent fetches of the same URL
+ * are coalesced: only the first one performs the HTTP call, everybody else waiting for the same URL in the meantime
+ * gets its result. The number of concurrent calls per host is limited by a {@link ConcurrencyLimiter}.
+ * <p>
+ * Pages fetched with {@link #getConditionalText(String, Endpoint)} are remembered with their ETag and Last-Modified
+ * validators, and revalidated with If-None-Match and If-Modified-Since. A 304 answer reuses the remembered text.
+ * <p>
+ * Any answer other than 2xx, or a 304 to a revalidation, fails with an {@link UnexpectedStatusException}, so error
+ * pages are neither parsed nor cached.
+ * <p>
+ * Pages are requested gzip compressed, Jenkins' markup shrinks by a factor of 10 or more, and are inflated while
+ * being decoded to text.
+ * <p>
+ * A fetch taking longer than the {@link #HEDGE_PERCENTILE} of the latest latencies of its endpoint is hedged: the
+ * same page is requested a second time and whichever answer comes first is used. Not while requests are queued for
+ * the host's concurrency limit though, a hedge would only add to the load of an overloaded Jenkins.
+ */
+class JenkinsClient {
+    private static Logger logger = LoggerFactory.getLogger(JenkinsClient.class);
+
+    public static final int MIN_CONCURRENCY = Integer.getInteger("cragg.jenkins.minConcurrency", 1);
+    public static final int MAX_CONCURRENCY = Integer.getInteger("cragg.jenkins.maxConcurrency", 16);
+    public static final long LATENCY_THRESHOLD_MILLIS = Long.getLong("cragg.jenkins.latencyThresholdMillis", 5000);
+    public static final int VALIDATED_PAGES_CACHE_SIZE = Integer.getInteger("cragg.jenkins.validatedPagesCacheSize", 500);
+    public static final boolean ACCEPT_GZIP =
+        Boolean.parseBoolean(System.getProperty("cragg.jenkins.gzip", "true"));
+    public static final long TIMEOUT_MILLIS = Long.getLong("cragg.jenkins.timeoutMillis", 30000);
+    // 0 turns hedging off
+    public static final double HEDGE_PERCENTILE =
+        Double.parseDouble(System.getProperty("cragg.jenkins.hedgePercentile", "0.95"));
+
+    private static final int LATENCY_SAMPLES = 200;
+    private static final int MIN_LATENCY_SAMPLES_FOR_HEDGING = 20;
+
+    private static final Histogram REQUEST_SECONDS = METRICS.histogram("cragg_jenkins_request_seconds",
+        "Duration of GETs to Jenkins, including the wait for the concurrency limit", "endpoint");
+    private static final Counter RESPONSES = METRICS.counter("cragg_jenkins_responses_total",
+        "Responses from Jenkins by status code, 0 for failed requests", "endpoint", "status");
+    private static final Counter RESPONSE_BYTES = METRICS.counter("cragg_jenkins_response_bytes_total",
+        "Bytes of response bodies received from Jenkins, before inflating them", "endpoint", "encoding");
+    private static final Counter HEDGED_REQUESTS = METRICS.counter("cragg_jenkins_hedged_requests_total",
+        "Second requests for slow pages, sent, won, i.e. answered before the first request, or skipped, as requests were "
+            + "queued for the host's limit", "endpoint", "result");
+
+    enum Endpoint {
+        JOB, BUILD, REPORT;
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final HttpClient httpClient;
+
+    private final Map<String, InFlightRequest> inFlightRequests = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrencyLimiter> concurrencyLimitersByHost = new ConcurrentHashMap<>();
+    private final AtomicLong requestedCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+    private final AtomicLong notModifiedCalls = new AtomicLong();
+    private final Map<Endpoint, LatencySamples> latencySamples = new ConcurrentHashMap<>();
+    private final Map<String, ValidatedPage> validatedPages = Collections.synchronizedMap(
+        new LinkedHashMap<String, ValidatedPage>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValidatedPage> eldest) {
+                return size() > VALIDATED_PAGES_CACHE_SIZE;
+            }
+        });
+
+    JenkinsClient(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    // Only for the client of the server, a name can be registered once
+    void registerMetrics(Metrics metrics) {
+        metrics.counter("cragg_jenkins_requested_calls_total", "Pages requested from Jenkins", requestedCalls::get);
+        metrics.counter("cragg_jenkins_coalesced_calls_total", "Pages requested while the same page was already being fetched",
+            coalescedCalls::get);
+        metrics.counter("cragg_jenkins_not_modified_calls_total", "Pages revalidated with a 304 answer",
+            notModifiedCalls::get);
+        metrics.gauge("cragg_jenkins_pages_in_flight", "Distinct pages being fetched", inFlightRequests::size);
+        metrics.gauge("cragg_jenkins_concurrency_limit", "Current concurrency limit per Jenkins host", "host",
+            () -> limiterGauge(ConcurrencyLimiter::getLimit));
+        metrics.gauge("cragg_jenkins_requests_in_flight", "Requests running per Jenkins host", "host",
+            () -> limiterGauge(ConcurrencyLimiter::getInFlight));
+        metrics.gauge("cragg_jenkins_requests_queued", "Requests waiting for the concurrency limit per Jenkins host", "host",
+            () -> limiterGauge(ConcurrencyLimiter::getQueued));
+    }
+
+    static HttpClient createHttpClient() throws Exception {
+        return HttpClient.of(spec -> spec.poolSize(MAX_CONCURRENCY));
+    }
+
+    Promise<String> getText(String url, Endpoint endpoint) {
+        // Join or start the request when the promise is subscribed, not when it is created
+        return Promise.value(url).flatMap(it -> joinOrFetch(it, false, endpoint));
+    }
+
+    // For pages that may change, like the job page
+    Promise<String> getConditionalText(String url, Endpoint endpoint) {
+        return Promise.value(url).flatMap(it -> joinOrFetch(it, true, endpoint));
+    }
+
+    long getRequestedCalls() {
+        return requestedCalls.get();
+    }
+
+    long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    long getNotModifiedCalls() {
+        return notModifiedCalls.get();
+    }
+
+    private Promise<String> joinOrFetch(String url, boolean conditional, Endpoint endpoint) {
+        requestedCalls.incrementAndGet();
+
+        InFlightRequest inFlightRequest = new InFlightRequest();
+        InFlightRequest runningRequest = inFlightRequests.putIfAbsent(url, inFlightRequest);
+
+        if (runningRequest != null) {
+            coalescedCalls.incrementAndGet();
+            return Promise.<String>async(runningRequest::join);
+        }
+
+        return hedgedFetch(url, conditional, endpoint)
+            .wiretap(result -> {
+                inFlightRequests.remove(url, inFlightRequest);
+                inFlightRequest.complete(result);
+            });
+    }
+
+    private Promise<String> hedgedFetch(String url, boolean conditional, Endpoint endpoint) {
+        Optional<Long> hedgeAfterMillis = HEDGE_PERCENTILE > 0
+            ? latencySamplesOf(endpoint).percentile(HEDGE_PERCENTILE)
+            : Optional.empty();
+        if (!hedgeAfterMillis.isPresent()) return fetch(url, conditional, endpoint);
+
+        // A hedge would only queue up behind the requests already waiting for the host's limit, adding to its load
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiterFor(URI.create(url));
+        return hedge(() -> fetch(url, conditional, endpoint), hedgeAfterMillis.get(),
+            () -> concurrencyLimiter.getQueued() == 0, endpoint);
+    }
+
+    // Sends the request a second time if there is no answer after the given time. The first success wins, an error
+    // only once no other request is running.
+    static <T> Promise<T> hedge(Supplier<Promise<T>> request, long hedgeAfterMillis, BooleanSupplier mayHedge,
+        Endpoint endpoint) {
+        return Promise.async(downstream -> {
+            HedgedRequest<T> hedgedRequest = new HedgedRequest<>(downstream);
+
+            hedgedRequest.scheduled(Execution.current().getController().getExecutor().schedule(() -> {
+                if (!mayHedge.getAsBoolean()) {
+                    HEDGED_REQUESTS.inc(endpoint.label(), "skipped");
+                    return;
+                }
+                if (!hedgedRequest.startHedge()) return;
+
+                HEDGED_REQUESTS.inc(endpoint.label(), "sent");
+                Execution.fork().start(execution -> request.get().result(result -> {
+                    if (hedgedRequest.complete(result) && result.isSuccess()) {
+                        HEDGED_REQUESTS.inc(endpoint.label(), "won");
+                    }
+                }));
+            }, hedgeAfterMillis, MILLISECONDS));
+
+            Execution.fork().start(execution -> request.get().result(hedgedRequest::complete));
+        });
+    }
+
+    private LatencySamples latencySamplesOf(Endpoint endpoint) {
+        return latencySamples.computeIfAbsent(endpoint, key -> new LatencySamples());
+    }
+
+    private Promise<String> fetch(String url, boolean conditional, Endpoint endpoint) {
+        if (!conditional) {
+            return httpGet(url, Optional.empty(), endpoint)
+                .map(receivedResponse -> getTextFromResponseBody(url, receivedResponse, endpoint));
+        }
+
+        Optional<ValidatedPage> validatedPage = Optional.ofNullable(validatedPages.get(url));
+        return httpGet(url, validatedPage, endpoint)
+            .map(receivedResponse -> {
+                if (validatedPage.isPresent() && receivedResponse.getStatus().getCode() == 304) {
+                    notModifiedCalls.incrementAndGet();
+                    return validatedPage.get().text;
+                }
+
+                String text = getTextFromResponseBody(url, receivedResponse, endpoint);
+                ValidatedPage.of(receivedResponse, text).ifPresent(page -> validatedPages.put(url, page));
+                return text;
+            });
+    }
+
+    private Promise<ReceivedResponse> httpGet(String url, Optional<ValidatedPage> validatedPage, Endpoint endpoint) {
+        URI uri = URI.create(url);
+
+        // Measured from when the limit is acquired, so the latencies for hedging don't include the wait in its queue
+        Promise<ReceivedResponse> get = Promise.sync(System::nanoTime).flatMap(startedAt ->
+            httpClient.get(uri, requestSpec -> requestSpec
+                .connectTimeout(Duration.ofMillis(TIMEOUT_MILLIS))
+                .readTimeout(Duration.ofMillis(TIMEOUT_MILLIS))
+                .decompressResponse(false)
+                .headers(headers -> {
+                    if (ACCEPT_GZIP) headers.set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP);
+                    validatedPage.ifPresent(page -> {
+                        if (page.etag != null) headers.set(HttpHeaderNames.IF_NONE_MATCH, page.etag);
+                        if (page.lastModified != null) headers.set(HttpHeaderNames.IF_MODIFIED_SINCE, page.lastModified);
+                    });
+                })
+            ).wiretap(result -> {
+                if (result.isSuccess()) latencySamplesOf(endpoint).add(NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            })
+        );
+        Promise<ReceivedResponse> limitedGet = concurrencyLimiterFor(uri).limit(get, this::isOverloaded);
+
+        return REQUEST_SECONDS.time(limitedGet, endpoint.label())
+            .wiretap(result -> {
+                if (result.isError()) {
+                    RESPONSES.inc(endpoint.label(), "0");
+                    logger.error(String.format("Error on GET for %s", url), result.getThrowable());
+                } else {
+                    RESPONSES.inc(endpoint.label(), String.valueOf(result.getValue().getStatus().getCode()));
+                    logger.debug(String.format("Successful GET for %s", url));
+                }
+            });
+    }
+
+    private Map<String, Integer> limiterGauge(Function<ConcurrencyLimiter, Integer> gauge) {
+        Map<String, Integer> values = new HashMap<>();
+        concurrencyLimitersByHost.forEach((host, concurrencyLimiter) -> values.put(host, gauge.apply(concurrencyLimiter)));
+        return values;
+    }
+
+    private ConcurrencyLimiter concurrencyLimiterFor(URI uri) {
+        return concurrencyLimitersByHost.computeIfAbsent(uri.getAuthority(), authority ->
+            new ConcurrencyLimiter(MIN_CONCURRENCY, MAX_CONCURRENCY, LATENCY_THRESHOLD_MILLIS));
+    }
+
+    private boolean isOverloaded(ReceivedResponse receivedResponse) {
+        int statusCode = receivedResponse.getStatus().getCode();
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    private String getTextFromResponseBody(String url, ReceivedResponse receivedResponse, Endpoint endpoint)
+        throws UnexpectedStatusException {
+        if (!receivedResponse.getStatus().is2xx()) {
+            throw new UnexpectedStatusException(url, receivedResponse.getStatus().getCode());
+        }
+
+        TypedData body = receivedResponse.getBody();
+        String contentEncoding = receivedResponse.getHeaders().get(HttpHeaderNames.CONTENT_ENCODING);
+        boolean gzip = HttpHeaderValues.GZIP.contentEqualsIgnoreCase(contentEncoding)
+            || HttpHeaderValues.X_GZIP.contentEqualsIgnoreCase(contentEncoding);
+        RESPONSE_BYTES.add(body.getBuffer().readableBytes(), endpoint.label(), gzip ? "gzip" : "identity");
+
+        if (!gzip) return body.getText();
+        return inflate(body);
+    }
+
+    static String inflate(TypedData body) {
+        return inflate(body.getInputStream(), body.getContentType().getCharset());
+    }
+
+    // Without a charset, UTF-8 like Jenkins' XML
+    static String inflate(InputStream compressed, String charset) {
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(compressed),
+            charset == null ? UTF_8 : Charset.forName(charset))) {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int length;
+            while ((length = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, length);
+            }
+            return text.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> void deliver(Downstream<? super T> downstream, Result<T> result) {
+        if (result.isError()) {
+            downstream.error(result.getThrowable());
+        } else {
+            downstream.success(result.getValue());
+        }
+    }
+
+    static class UnexpectedStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int statusCode;
+
+        UnexpectedStatusException(String url, int statusCode) {
+            super(String.format("GET for %s answered %d", url, statusCode));
+            this.statusCode = statusCode;
+        }
+    }
+
+    private static class HedgedRequest<T> {
+        private final Downstream<? super T> downstream;
+        private ScheduledFuture<?> hedge;
+        private int running = 1;
+        private boolean answered;
+
+        HedgedRequest(Downstream<? super T> downstream) {
+            this.downstream = downstream;
+        }
+
+        synchronized void scheduled(ScheduledFuture<?> hedge) {
+            this.hedge = hedge;
+            if (answered) hedge.cancel(false);
+        }
+
+        synchronized boolean startHedge() {
+            if (answered) return false;
+            running++;
+            return true;
+        }
+
+        // True if the result is the answer
+        boolean complete(Result<T> result) {
+            synchronized (this) {
+                running--;
+                if (answered || (result.isError() && running > 0)) return false;
+                answered = true;
+                if (hedge != null) hedge.cancel(false);
+            }
+            deliver(downstream, result);
+            return true;
+        }
+    }
+
+    // The latest latencies of an endpoint's successful HTTP exchanges
+    static class LatencySamples {
+        private final long[] millis = new long[LATENCY_SAMPLES];
+        private int next;
+        private int count;
+
+        synchronized void add(long latencyMillis) {
+            millis[next] = latencyMillis;
+            next = (next + 1) % millis.length;
+            count = Math.min(count + 1, millis.length);
+        }
+
+        synchronized Optional<Long> percentile(double percentile) {
+            if (count < MIN_LATENCY_SAMPLES_FOR_HEDGING) return Optional.empty();
+
+            long[] sorted = Arrays.copyOf(millis, count);
+            Arrays.sort(sorted);
+            return Optional.of(sorted[Math.max(0, (int) Math.ceil(percentile * count) - 1)]);
+        }
+    }
+
+    private static class ValidatedPage {
+        private final String etag;
+        private final String lastModified;
+        private final String text;
+
+        private ValidatedPage(String etag, String lastModified, String text) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.text = text;
+        }
+
+        static Optional<ValidatedPage> of(ReceivedResponse receivedResponse, String text) {
+            if (receivedResponse.getStatus().getCode() != 200) return Optional.empty();
+
+            String etag = receivedResponse.getHeaders().get(HttpHeaderNames.ETAG);
+            String lastModified = receivedResponse.getHeaders().get(HttpHeaderNames.LAST_MODIFIED);
+            if (etag == null && lastModified == null) return Optional.empty();
+
+            return Optional.of(new ValidatedPage(etag, lastModified, text));
+        }
+    }
+
+    private static class InFlightRequest {
+        private final List<Downstream<? super String>> waiting = new ArrayList<>();
+        private Result<String> result;
+
+        synchronized void join(Downstream<? super String> downstream) {
+            if (result == null) {
+                waiting.add(downstream);
+            } else {
+                deliver(downstream, result);
+            }
+        }
+
+        void complete(Result<String> result) {
+            List<Downstream<? super String>> toNotify;
+            synchronized (this) {
+                this.result = result;
+                toNotify = new ArrayList<>(waiting);
+                waiting.clear();
+            }
+            toNotify.forEach(downstream -> deliver(downstream, result));
+        }
+    }
+}
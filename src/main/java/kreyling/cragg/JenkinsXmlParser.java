@@ -0,0 +1,252 @@
+package kreyling.cragg;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.ScmChange;
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads Jenkins' job and build API documents in a single StAX pass. Yields the same results as the XPath queries of
+ * {@link Main.JenkinsRequestProcessor}, e.g. for single values the first matching element in document order wins.
+ */
+class JenkinsXmlParser {
+    private static final String UPSTREAM_CAUSE_CLASS = "hudson.model.Cause$UpstreamCause";
+
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    List<BuildReference> parseBuildNumbersFromJob(String text, String jenkinsJob) {
+        List<String> buildNumbers = new ArrayList<>();
+        String firstBuild = null;
+        String lastSuccessfulBuild = null;
+
+        XmlPath path = new XmlPath();
+        XMLStreamReader reader = createReader(text);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    path.push(reader.getLocalName());
+                    if (!path.is("number")) continue;
+
+                    if (path.parentIs("build")) {
+                        buildNumbers.add(reader.getElementText());
+                        path.pop();
+                    } else if (path.parentIs("firstBuild") && firstBuild == null) {
+                        firstBuild = reader.getElementText();
+                        path.pop();
+                    } else if (path.parentIs("lastSuccessfulBuild") && lastSuccessfulBuild == null) {
+                        lastSuccessfulBuild = reader.getElementText();
+                        path.pop();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    path.pop();
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        } finally {
+            close(reader);
+        }
+
+        String excludedFirstBuild = required(firstBuild, "firstBuild/number");
+        String excludedLastSuccessfulBuild = required(lastSuccessfulBuild, "lastSuccessfulBuild/number");
+
+        return buildNumbers.stream()
+            .filter(number -> !number.equals(excludedFirstBuild))
+            .filter(number -> !number.equals(excludedLastSuccessfulBuild))
+            .map(number -> new BuildReference(number, jenkinsJob))
+            .collect(toList());
+    }
+
+    Build parseBuildInfo(String text, BuildReference buildReference) {
+        String duration = null;
+        String timestamp = null;
+        String building = null;
+        String startedByUser = null;
+        List<BuildReference> upstreamBuildReferences = new ArrayList<>();
+        List<ScmChange> scmChanges = new ArrayList<>();
+
+        // Children of the upstream cause or change set item currently read
+        String upstreamBuild = null;
+        String upstreamUrl = null;
+        boolean inUpstreamCause = false;
+        String commitId = null;
+        String comment = null;
+        String fullName = null;
+        boolean inChangeSetItem = false;
+
+        XmlPath path = new XmlPath();
+        XMLStreamReader reader = createReader(text);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    path.push(reader.getLocalName());
+
+                    if (path.is("cause")) {
+                        inUpstreamCause = UPSTREAM_CAUSE_CLASS.equals(reader.getAttributeValue(null, "_class"));
+                        upstreamBuild = null;
+                        upstreamUrl = null;
+                    } else if (path.is("item") && path.parentIs("changeSet")) {
+                        inChangeSetItem = true;
+                        commitId = null;
+                        comment = null;
+                        fullName = null;
+                    } else if (path.is("duration") && duration == null) {
+                        duration = readText(reader, path);
+                    } else if (path.is("timestamp") && timestamp == null) {
+                        timestamp = readText(reader, path);
+                    } else if (path.is("building") && building == null) {
+                        building = readText(reader, path);
+                    } else if (path.parentIs("cause")) {
+                        if (path.is("userName") && startedByUser == null) {
+                            startedByUser = readText(reader, path);
+                        } else if (path.is("upstreamBuild") && inUpstreamCause && upstreamBuild == null) {
+                            upstreamBuild = readText(reader, path);
+                        } else if (path.is("upstreamUrl") && inUpstreamCause && upstreamUrl == null) {
+                            upstreamUrl = readText(reader, path);
+                        }
+                    } else if (inChangeSetItem && path.parentIs("item")) {
+                        if (path.is("commitId") && commitId == null) {
+                            commitId = readText(reader, path);
+                        } else if (path.is("comment") && comment == null) {
+                            comment = readText(reader, path);
+                        }
+                    } else if (inChangeSetItem && path.is("fullName") && path.parentIs("author")
+                        && path.grandParentIs("item") && fullName == null) {
+                        fullName = readText(reader, path);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (path.is("cause") && inUpstreamCause) {
+                        upstreamBuildReferences.add(new BuildReference(upstreamBuild, upstreamUrl));
+                        inUpstreamCause = false;
+                    } else if (path.is("item") && path.parentIs("changeSet") && inChangeSetItem) {
+                        scmChanges.add(new ScmChange(commitId, removeExtSuffix(fullName), comment));
+                        inChangeSetItem = false;
+                    }
+                    path.pop();
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        } finally {
+            close(reader);
+        }
+
+        return new Build(
+            buildReference,
+            new Duration(Long.parseLong(required(duration, "duration"))),
+            new DateTime(Long.parseLong(required(timestamp, "timestamp"))),
+            Optional.ofNullable(startedByUser).map(this::removeExtSuffix),
+            upstreamBuildReferences,
+            emptyList(),
+            scmChanges,
+            Boolean.parseBoolean(building)
+        );
+    }
+
+    // Direct text content of the current element like JDOM's getText(), leaves the reader at its end element
+    private String readText(XMLStreamReader reader, XmlPath path) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 0;
+
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 0) break;
+                depth--;
+            } else if (depth == 0 && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                || event == XMLStreamConstants.SPACE)) {
+                text.append(reader.getText());
+            }
+        }
+
+        path.pop();
+        return text.toString();
+    }
+
+    private String removeExtSuffix(String name) {
+        return StringUtils.removeEnd(name, " (ext)");
+    }
+
+    private String required(String value, String name) {
+        if (value == null) throw new NoSuchElementException("No " + name + " in document");
+        return value;
+    }
+
+    private XMLStreamReader createReader(String text) {
+        try {
+            return xmlInputFactory.createXMLStreamReader(new StringReader(text));
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void close(XMLStreamReader reader) {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // Nothing left to release
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static class XmlPath {
+        private final Deque<String> names = new ArrayDeque<>();
+
+        void push(String name) {
+            names.push(name);
+        }
+
+        void pop() {
+            names.pop();
+        }
+
+        boolean is(String name) {
+            return name.equals(names.peek());
+        }
+
+        boolean parentIs(String name) {
+            return name.equals(ancestor(1));
+        }
+
+        boolean grandParentIs(String name) {
+            return name.equals(ancestor(2));
+        }
+
+        private String ancestor(int level) {
+            int i = 0;
+            for (String name : names) {
+                if (i++ == level) return name;
+            }
+            return null;
+        }
+    }
+}
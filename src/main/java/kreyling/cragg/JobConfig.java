@@ -0,0 +1,85 @@
+package kreyling.cragg;
+
+import static kreyling.cragg.Main.CUCUMBER_JSON_PATH;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.removeEnd;
+import static org.apache.commons.lang3.StringUtils.removeStart;
+import static org.apache.commons.lang3.StringUtils.replace;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * One Jenkins job shown on the dashboard, served under {@code /job/<name>}. Read from a properties file like
+ * <pre>
+ * host=https://jenkins.example.com/
+ * scmRepositoryBaseUrl=https://scm.example.com/projects/
+ * jobs=e2e,smoke
+ * job.e2e.path=job/e2e-tests/
+ * job.e2e.cucumberJsonPath=artifact/target/cucumber.json
+ * job.smoke.path=job/smoke-tests/
+ * </pre>
+ * {@code host}, {@code scmRepositoryBaseUrl} and {@code cucumberJsonPath} are defaults, each job may override them.
+ */
+@Value
+class JobConfig {
+    String name;
+    String host;
+    String jenkinsJob;
+    Optional<String> scmRepositoryBaseUrl;
+    Optional<String> cucumberJsonPath;
+
+    static JobConfig of(String host, String jenkinsJob, Optional<String> scmRepositoryBaseUrl) {
+        // Jobs in folders, e.g. job/team/job/e2e/, become team-e2e, the name is a single path segment of the URL
+        String name = replace(replace(removeEnd(removeStart(jenkinsJob, "job/"), "/"), "/job/", "-"), "/", "-");
+        return new JobConfig(name, host, jenkinsJob, scmRepositoryBaseUrl, CUCUMBER_JSON_PATH);
+    }
+
+    static List<JobConfig> load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return fromProperties(properties);
+    }
+
+    static List<JobConfig> fromProperties(Properties properties) {
+        String jobs = properties.getProperty("jobs");
+        if (isBlank(jobs)) throw new IllegalArgumentException("No jobs configured, expected e.g. jobs=e2e,smoke");
+
+        List<JobConfig> jobConfigs = new ArrayList<>();
+        for (String job : jobs.split(",")) {
+            String name = job.trim();
+            if (name.contains("/")) throw new IllegalArgumentException("Job name " + name + " must not contain /");
+            String prefix = "job." + name + ".";
+
+            String jenkinsJob = properties.getProperty(prefix + "path");
+            if (isBlank(jenkinsJob)) throw new IllegalArgumentException("No " + prefix + "path configured");
+
+            String host = property(properties, prefix, "host")
+                .orElseThrow(() -> new IllegalArgumentException("No host configured for job " + name));
+
+            Optional<String> cucumberJsonPath = property(properties, prefix, "cucumberJsonPath");
+            jobConfigs.add(new JobConfig(
+                name,
+                host,
+                jenkinsJob,
+                property(properties, prefix, "scmRepositoryBaseUrl"),
+                cucumberJsonPath.isPresent() ? cucumberJsonPath : CUCUMBER_JSON_PATH
+            ));
+        }
+        return jobConfigs;
+    }
+
+    private static Optional<String> property(Properties properties, String prefix, String key) {
+        return Optional.ofNullable(properties.getProperty(prefix + key, properties.getProperty(key)));
+    }
+}
@@ -1,21 +1,37 @@
 package kreyling.cragg;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Comparator.comparing;
 import static java.util.Optional.empty;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
+import static kreyling.cragg.Metrics.METRICS;
+import static kreyling.cragg.ParsePool.PARSE_POOL;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.left;
 import static org.apache.commons.lang3.StringUtils.removeEnd;
 import static org.apache.commons.lang3.StringUtils.removeStart;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import kreyling.cragg.JenkinsClient.Endpoint;
+import kreyling.cragg.JenkinsClient.UnexpectedStatusException;
+import kreyling.cragg.Metrics.Counter;
+import kreyling.cragg.Metrics.Histogram;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import lombok.experimental.NonFinal;
 import lombok.experimental.Wither;
+import ratpack.exec.ExecResult;
+import ratpack.exec.Execution;
 import ratpack.exec.Promise;
 import ratpack.exec.util.ParallelBatch;
 import ratpack.func.Pair;
@@ -23,9 +39,11 @@ import ratpack.handling.Context;
 import ratpack.http.MediaType;
 import ratpack.http.Status;
 import ratpack.http.client.HttpClient;
-import ratpack.http.client.ReceivedResponse;
 import ratpack.server.BaseDir;
 import ratpack.server.RatpackServer;
+import ratpack.server.ServerConfig;
+import ratpack.stream.Streams;
+import ratpack.stream.TransformablePublisher;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jdom2.Document;
@@ -39,14 +57,26 @@ import org.joda.time.Duration;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.PeriodFormatter;
 import org.joda.time.format.PeriodFormatterBuilder;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.StringReader;
-import java.net.URI;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -55,30 +85,225 @@ public class Main {
 
     public static final String JENKINS_API_SUFFIX = "/api/xml";
 
+    // Only the fields read by parseBuildNumbersFromJob and parseBuildInfo, see "tree" in Jenkins' remote API docs
+    public static final String JENKINS_JOB_TREE = "builds[number],firstBuild[number],lastSuccessfulBuild[number]";
+    public static final String JENKINS_BUILD_TREE = "building,duration,timestamp," +
+        "actions[causes[userName,upstreamBuild,upstreamUrl]]," +
+        "changeSet[items[commitId,comment,author[fullName]]]";
+    public static final boolean USE_TREE_QUERIES =
+        Boolean.parseBoolean(System.getProperty("cragg.jenkins.treeQueries", "true"));
+
     public static final String CUCUMBER_REPORTS_PATH = "/cucumber-html-reports/";
     public static final String CUCUMBER_REPORTS_OVERVIEW_PAGE = CUCUMBER_REPORTS_PATH + "overview-features.html";
 
+    // Path of cucumber's JSON result below the build, e.g. "artifact/target/cucumber.json". Without it, the cucumber
+    // reports plugin's overview page is scraped. The default for all jobs, a jobs file may set it per job.
+    public static final Optional<String> CUCUMBER_JSON_PATH =
+        Optional.ofNullable(System.getProperty("cragg.cucumberJsonPath"));
+
+    // "dom" falls back to JDOM documents and XPath, instead of the streaming parsers
+    public static final boolean USE_DOM_PARSERS = System.getProperty("cragg.parser", "streaming").equals("dom");
+
+    public static final int BUILD_CACHE_SIZE = Integer.getInteger("cragg.buildCacheSize", 2000);
+
+    public static final String SNAPSHOT_DIRECTORY = System.getProperty("cragg.snapshotDir", "snapshots");
+    public static final int SNAPSHOT_RETENTION_DAYS = Integer.getInteger("cragg.snapshotRetentionDays", 90);
+
+    public static final int POLL_INTERVAL_SECONDS = Integer.getInteger("cragg.pollIntervalSeconds", 60);
+
+    // Levels of upstream builds resolved for each build, the page shows two
+    public static final int UPSTREAM_DEPTH = Integer.getInteger("cragg.upstreamDepth", 2);
+
+    public static final int ROWS_PER_CHUNK = Integer.getInteger("cragg.rowsPerChunk", 50);
+
+    // Sends the page right away and fills in each build's column as soon as it is queried, see processProgressively
+    public static final boolean PROGRESSIVE_RENDERING = Boolean.getBoolean("cragg.progressive");
+
+    // A dashboard not aggregated this long after the request, job page included, is sent with the builds queried so
+    // far, the others are shown as pending. 0 waits for all builds.
+    public static final long DEADLINE_MILLIS = Long.getLong("cragg.deadlineMillis", 0);
+
+    private static final Histogram AGGREGATE_SECONDS = METRICS.histogram("cragg_aggregate_seconds",
+        "Time to aggregate the test reports of all builds into the matrix");
+    private static final Histogram RENDER_SECONDS = METRICS.histogram("cragg_render_seconds",
+        "Time spent writing the HTML of a whole page, or of one column when rendering progressively", "part");
+    private static final Counter RESPONSE_BYTES = METRICS.counter("cragg_dashboard_response_bytes_total",
+        "Bytes streamed for dashboards and their NDJSON results");
+    private static final Counter DASHBOARD_REQUESTS = METRICS.counter("cragg_dashboard_requests_total",
+        "Dashboard requests by how they were answered", "answer");
+    private static final Counter NOTIFICATIONS = METRICS.counter("cragg_build_notifications_total",
+        "Build notifications posted by Jenkins, by whether they updated a job", "result");
+
+    // Either "<host> <jenkinsJob> [<scmRepositoryBaseUrl>]" for a single job, or the path of a jobs file, see JobConfig
     public static void main(String... args) throws Exception {
-        String host = args[0];
-        String jenkinsJob = args[1];
-        Optional<String> scmRepositoryBaseUrl = getScmRepositoryBaseUrl(args);
+        List<JobConfig> jobConfigs = args.length == 1
+            ? JobConfig.load(Paths.get(args[0]))
+            : singletonList(JobConfig.of(args[0], args[1], getScmRepositoryBaseUrl(args)));
 
         logger.info("Starting ...");
 
-        RatpackServer.start(server -> server
-            .serverConfig(c -> c.baseDir(BaseDir.find()).build())
+        JenkinsClient jenkinsClient = new JenkinsClient(JenkinsClient.createHttpClient());
+        jenkinsClient.registerMetrics(METRICS);
+
+        createServer(jobConfigs, SnapshotStore.of(SNAPSHOT_DIRECTORY, SNAPSHOT_RETENTION_DAYS), jenkinsClient,
+            POLL_INTERVAL_SECONDS, ServerConfig.DEFAULT_PORT).start();
+    }
+
+    // Also started by the load test, against a fake Jenkins on an ephemeral port
+    static RatpackServer createServer(List<JobConfig> jobConfigs, SnapshotStore snapshotStore,
+        JenkinsClient jenkinsClient, int pollIntervalSeconds, int port) throws Exception {
+        // Shared by all jobs, so upstream builds common to several jobs are fetched and cached once
+        BuildCache buildCache = new BuildCache(BUILD_CACHE_SIZE, snapshotStore);
+
+        Map<String, JobConfig> jobConfigsByName = new LinkedHashMap<>();
+        Map<String, ReportPoller> reportPollersByName = new LinkedHashMap<>();
+        for (JobConfig jobConfig : jobConfigs) {
+            jobConfigsByName.put(jobConfig.getName(), jobConfig);
+            reportPollersByName.put(jobConfig.getName(), new ReportPoller(
+                new JenkinsRequestProcessor(jobConfig, null, jenkinsClient, buildCache),
+                pollIntervalSeconds
+            ));
+        }
+
+        return RatpackServer.of(server -> server
+            .serverConfig(c -> c.baseDir(BaseDir.find()).port(port).build())
+            .registryOf(registry -> {
+                registry.add(snapshotStore);
+                reportPollersByName.values().forEach(reportPoller -> registry.add(reportPoller));
+            })
             .handlers(chain -> chain
                     .files(files -> files.dir("static"))
-                    .get(context -> new JenkinsRequestProcessor(host, jenkinsJob, scmRepositoryBaseUrl, context, context.get(HttpClient.class))
-                        .process()
-//                        .queryJenkinsBuildInformationIncludingUpstreamBuild("1494")
-//                        .map(build -> new BuildAndUpstreamBuild(build, Optional.empty()))
-//                    .then(buildAndUpstreamBuild -> context.render(buildAndUpstreamBuild.toString()))
-                        )
+                    .get("metrics", context -> context.getResponse()
+                        .contentType(Metrics.CONTENT_TYPE)
+                        .send(METRICS.scrape()))
+                    .get("job/:name", context -> {
+                        String name = context.getPathTokens().get("name");
+                        if (!jobConfigsByName.containsKey(name)) {
+                            context.clientError(404);
+                            return;
+                        }
+                        serveJob(context, jobConfigsByName.get(name), reportPollersByName.get(name),
+                            jenkinsClient, buildCache);
+                    })
+                    .get("job/:name/results", context -> {
+                        String name = context.getPathTokens().get("name");
+                        if (!jobConfigsByName.containsKey(name)) {
+                            context.clientError(404);
+                            return;
+                        }
+                        serveResults(context, jobConfigsByName.get(name), reportPollersByName.get(name),
+                            jenkinsClient, buildCache);
+                    })
+                    .post("notify", context -> receiveNotification(context, jobConfigs, reportPollersByName))
+                    .get("results", context -> {
+                        if (jobConfigs.size() != 1) {
+                            context.clientError(404);
+                            return;
+                        }
+                        JobConfig jobConfig = jobConfigs.get(0);
+                        serveResults(context, jobConfig, reportPollersByName.get(jobConfig.getName()),
+                            jenkinsClient, buildCache);
+                    })
+                    .get(context -> {
+                        if (jobConfigs.size() == 1) {
+                            JobConfig jobConfig = jobConfigs.get(0);
+                            serveJob(context, jobConfig, reportPollersByName.get(jobConfig.getName()),
+                                jenkinsClient, buildCache);
+                        } else {
+                            serveJobIndex(context, jobConfigs);
+                        }
+                    })
             )
         );
     }
 
+    private static void serveJob(Context context, JobConfig jobConfig, ReportPoller reportPoller,
+        JenkinsClient jenkinsClient, BuildCache buildCache) {
+        JenkinsRequestProcessor jenkinsRequestProcessor =
+            new JenkinsRequestProcessor(jobConfig, context, jenkinsClient, buildCache);
+
+        BuildWindow buildWindow = BuildWindow.of(context.getRequest().getQueryParams());
+
+        Optional<AggregatedReport> snapshot = reportPoller.getSnapshot();
+        if (snapshot.isPresent()) {
+            DASHBOARD_REQUESTS.inc("snapshot");
+            jenkinsRequestProcessor.renderTestReports(jenkinsRequestProcessor.selectWindow(snapshot.get(), buildWindow));
+        } else if (PROGRESSIVE_RENDERING) {
+            DASHBOARD_REQUESTS.inc("progressive");
+            jenkinsRequestProcessor.processProgressively(buildWindow);
+        } else {
+            DASHBOARD_REQUESTS.inc("aggregated");
+            jenkinsRequestProcessor.process(buildWindow);
+        }
+    }
+
+    private static void serveResults(Context context, JobConfig jobConfig, ReportPoller reportPoller,
+        JenkinsClient jenkinsClient, BuildCache buildCache) {
+        JenkinsRequestProcessor jenkinsRequestProcessor =
+            new JenkinsRequestProcessor(jobConfig, context, jenkinsClient, buildCache);
+        TestResultsNdjson.Query query = TestResultsNdjson.Query.of(context.getRequest().getQueryParams());
+
+        Optional<AggregatedReport> snapshot = reportPoller.getSnapshot();
+        if (snapshot.isPresent()) {
+            jenkinsRequestProcessor.renderResults(snapshot.get(), query);
+        } else {
+            jenkinsRequestProcessor.aggregate().then(aggregatedReport ->
+                jenkinsRequestProcessor.renderResults(aggregatedReport, query));
+        }
+    }
+
+    // Jenkins' notification plugin, configured with the URL .../notify, protocol HTTP and format JSON
+    private static void receiveNotification(Context context, List<JobConfig> jobConfigs,
+        Map<String, ReportPoller> reportPollersByName) {
+        context.getRequest().getBody().then(body -> {
+            Optional<BuildNotification> notification = BuildNotification.parse(body.getText());
+            if (!notification.isPresent()) {
+                NOTIFICATIONS.inc("invalid");
+                context.clientError(400);
+                return;
+            }
+
+            List<ReportPoller> reportPollers = jobConfigs.stream()
+                .filter(notification.get()::isOf)
+                .map(jobConfig -> reportPollersByName.get(jobConfig.getName()))
+                .filter(ReportPoller::isPolling)
+                .collect(toList());
+            // A notification without the build's URL is ambiguous if jobs of the same path on several hosts match
+            boolean ambiguous = !notification.get().getBuildUrl().isPresent() && reportPollers.size() > 1;
+            if (!notification.get().isFinished() || reportPollers.isEmpty() || ambiguous) {
+                NOTIFICATIONS.inc("ignored");
+                context.getResponse().status(Status.of(204)).send();
+                return;
+            }
+
+            NOTIFICATIONS.inc("accepted");
+            reportPollers.forEach(reportPoller -> reportPoller.buildFinished(notification.get().getBuildReference()));
+            context.getResponse().status(Status.of(202)).send();
+        });
+    }
+
+    private static void serveJobIndex(Context context, List<JobConfig> jobConfigs) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n");
+        html.append("<html>\n");
+        html.append("<head>\n");
+        html.append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\" />\n");
+        html.append("<link rel=\"stylesheet\" href=\"/css/bootstrap.min.css\" type=\"text/css\"/>\n");
+        html.append("</head>\n");
+        html.append("<body>\n");
+        html.append("<ul class=\"list-unstyled\">\n");
+        for (JobConfig jobConfig : jobConfigs) {
+            html.append("<li><a href=\"/job/").append(jobConfig.getName()).append("\">");
+            html.append(jobConfig.getName()).append("</a></li>\n");
+        }
+        html.append("</ul>\n");
+        html.append("</body>\n");
+        html.append("</html>\n");
+
+        context.getResponse().status(Status.OK).contentType(MediaType.TEXT_HTML);
+        context.render(html.toString());
+    }
+
     private static Optional<String> getScmRepositoryBaseUrl(String[] args) {
         if (args.length <= 2) return empty();
         return Optional.of(args[2]);
@@ -86,7 +311,7 @@ public class Main {
 
     @Value
     @EqualsAndHashCode(of = "name")
-    private static class Feature implements Comparable<Feature> {
+    static class Feature implements Comparable<Feature> {
         String name;
         String link;
 
@@ -97,14 +322,28 @@ public class Main {
     }
 
     @Value @NonFinal
-    private static class TestReportLine {
+    static class TestReportLine {
         Feature feature;
         String failedSteps;
         String skippedSteps;
         String totalSteps;
         String status;
+        int totalStepsInt;
+        int failedStepsInt;
+        int skippedStepsInt;
+
+        public TestReportLine(Feature feature, String failedSteps, String skippedSteps, String totalSteps, String status) {
+            this.feature = feature;
+            this.failedSteps = failedSteps;
+            this.skippedSteps = skippedSteps;
+            this.totalSteps = totalSteps;
+            this.status = status;
+            totalStepsInt = toInt(totalSteps);
+            failedStepsInt = toInt(failedSteps);
+            skippedStepsInt = toInt(skippedSteps);
+        }
 
-        public int toInt(String string) {
+        public static int toInt(String string) {
             try {
                 return Integer.parseInt(string);
             } catch (NumberFormatException e) {
@@ -112,20 +351,8 @@ public class Main {
             }
         }
 
-        public int getTotalStepsInt() {
-            return toInt(totalSteps);
-        }
-
-        public int getFailedStepsInt() {
-            return toInt(failedSteps);
-        }
-
-        public int getSkippedStepsInt() {
-            return toInt(skippedSteps);
-        }
-
         public int getFailedAndSkippedStepsInt() {
-            return getFailedStepsInt() + getSkippedStepsInt();
+            return failedStepsInt + skippedStepsInt;
         }
     }
 
@@ -144,6 +371,7 @@ public class Main {
         public List<BuildReference> upstreamBuildReferences;
         @Wither public List<? extends Build> upstreamBuilds;
         public List<ScmChange> scmChanges;
+        public boolean building;
 
         public String getDurationFormatted() {
             PeriodFormatter minutesAndSeconds = new PeriodFormatterBuilder()
@@ -170,7 +398,7 @@ public class Main {
 
     static class NullBuild extends Build {
         public NullBuild(BuildReference buildReference) {
-            super(buildReference, null, null, empty(), emptyList(), emptyList(), emptyList());
+            super(buildReference, null, null, empty(), emptyList(), emptyList(), emptyList(), false);
         }
     }
 
@@ -197,11 +425,13 @@ public class Main {
         public String buildNumber;
         List<TestReportLine> testReportLines;
         Map<Feature, List<TestReportLine>> testReportLinesByFeature;
+        boolean systemFailure;
 
         public TestReport(String buildNumber, List<TestReportLine> testReportLines) {
             this.buildNumber = buildNumber;
             this.testReportLines = testReportLines;
             testReportLinesByFeature = testReportLines.stream().collect(groupingBy(TestReportLine::getFeature));
+            systemFailure = determineSystemFailure(testReportLines);
         }
 
         public Stream<Feature> getAllFeatures() {
@@ -214,7 +444,7 @@ public class Main {
             return testReportLinesByFeature.get(feature).get(0);
         }
 
-        public boolean isSystemFailure() {
+        static boolean determineSystemFailure(List<TestReportLine> testReportLines) {
             double numberOfFeatures = testReportLines.size();
 
             List<String> sortedStatus = testReportLines.stream()
@@ -248,9 +478,58 @@ public class Main {
     }
 
     @Value
-    private static class AggregatedTestReportLine {
-        Feature feature;
-        List<Pair<TestReportLine, TestReport>> testReportLinesAndTestReport;
+    static class AggregatedReport {
+        List<? extends Pair<Build, TestReport>> pairs;
+        TestResultMatrix testResultMatrix;
+        BuildWindow.Selection buildWindowSelection;
+        // Builds not queried by the deadline or failed, ordered by number
+        List<BuildReference> pendingBuildReferences;
+        String etag;
+
+        AggregatedReport(List<? extends Pair<Build, TestReport>> pairs, TestResultMatrix testResultMatrix) {
+            this(pairs, testResultMatrix, BuildWindow.Selection.NONE, emptyList());
+        }
+
+        AggregatedReport(List<? extends Pair<Build, TestReport>> pairs, TestResultMatrix testResultMatrix,
+            BuildWindow.Selection buildWindowSelection, List<BuildReference> pendingBuildReferences) {
+            this.pairs = pairs;
+            this.testResultMatrix = testResultMatrix;
+            this.buildWindowSelection = buildWindowSelection;
+            this.pendingBuildReferences = pendingBuildReferences.stream()
+                .sorted(comparing(BuildReference::getNumber, TestResultMatrix::compareBuildNumbers))
+                .collect(toList());
+            this.etag = computeEtag(testResultMatrix, buildWindowSelection, this.pendingBuildReferences);
+        }
+
+        // Derived from the builds shown, the state of each of them, the pending builds and the links to other
+        // windows, the page changes with nothing else
+        static String computeEtag(TestResultMatrix testResultMatrix, BuildWindow.Selection buildWindowSelection,
+            List<BuildReference> pendingBuildReferences) {
+            StringBuilder state = new StringBuilder();
+            pendingBuildReferences.forEach(buildReference ->
+                state.append("pending ").append(buildReference.jobPath).append(buildReference.number).append('\n'));
+            buildWindowSelection.getOlderQuery().ifPresent(query -> state.append("older ").append(query).append('\n'));
+            buildWindowSelection.getNewerQuery().ifPresent(query -> state.append("newer ").append(query).append('\n'));
+            for (int column = 0; column < testResultMatrix.getNumberOfBuilds(); column++) {
+                Build build = testResultMatrix.getColumns().get(column).getLeft();
+                state.append(build.buildReference.jobPath).append(build.buildReference.number)
+                    .append(build.building ? " building" : "").append('\n');
+                for (int row = 0; row < testResultMatrix.getNumberOfFeatures(); row++) {
+                    if (!testResultMatrix.hasResult(row, column)) continue;
+                    state.append(testResultMatrix.getFeature(row).name).append(' ')
+                        .append(testResultMatrix.getStatus(row, column)).append(' ')
+                        .append(testResultMatrix.getFailedSteps(row, column)).append('/')
+                        .append(testResultMatrix.getSkippedSteps(row, column)).append('/')
+                        .append(testResultMatrix.getTotalSteps(row, column)).append('\n');
+                }
+            }
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(state.toString().getBytes(UTF_8));
+                return "\"" + String.format("%040x", new BigInteger(1, digest)) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     @Value
@@ -258,100 +537,236 @@ public class Main {
     static class JenkinsRequestProcessor {
         String host;
         String jenkinsJob;
+        Optional<String> cucumberJsonPath;
         Context context;
         AggregatedReportBuilder aggregatedReportBuilder;
-        HttpClient httpClient;
+        JenkinsClient jenkinsClient;
+        BuildCache buildCache;
+        CucumberJsonParser cucumberJsonParser = new CucumberJsonParser();
+        OverviewPageParser overviewPageParser = new OverviewPageParser();
+        JenkinsXmlParser jenkinsXmlParser = new JenkinsXmlParser();
+
+        // Caches nothing, for processors outside of the server, e.g. parsing pages in tests and benchmarks
+        private static final BuildCache NO_BUILD_CACHE = new BuildCache(0, SnapshotStore.disabled());
 
         public JenkinsRequestProcessor(String host, String jenkinsJob, Optional<String> scmRepositoryBaseUrl,
             Context context, HttpClient httpClient) {
+            this(JobConfig.of(host, jenkinsJob, scmRepositoryBaseUrl), context, new JenkinsClient(httpClient),
+                NO_BUILD_CACHE);
+        }
+
+        public JenkinsRequestProcessor(JobConfig jobConfig, Context context, JenkinsClient jenkinsClient,
+            BuildCache buildCache) {
             this(
-                host,
-                jenkinsJob,
+                jobConfig.getHost(),
+                jobConfig.getJenkinsJob(),
+                jobConfig.getCucumberJsonPath(),
                 context,
-                new AggregatedReportBuilder(host, jenkinsJob, scmRepositoryBaseUrl),
-                httpClient
+                new AggregatedReportBuilder(jobConfig.getHost(), jobConfig.getJenkinsJob(),
+                    jobConfig.getScmRepositoryBaseUrl()),
+                jenkinsClient,
+                buildCache
             );
         }
 
-        public void process() {
-            queryJenkinsJobPage()
-                .flatMap(buildReferences ->
-                    ParallelBatch.of(
-                        buildReferences.stream()
-                            .map(buildReference ->
-                                queryCucumberReport(buildReference)
-                                    .left(queryJenkinsBuildInformationIncludingUpstreamBuild(buildReference)))
-                            .collect(toList())
-                    )
-                        .yield()
-                        .map(this::filterEmptyReports)
-                )
-                .then(this::renderTestReports);
-        }
-
-        private <L, P extends Pair<L, TestReport>> List<P> filterEmptyReports(List<P> pairs) {
-            return pairs.stream()
-                .filter(pair -> pair.getRight() != null)
+        public void process(BuildWindow buildWindow) {
+            aggregate(buildWindow, DEADLINE_MILLIS).then(this::renderTestReports);
+        }
+
+        public void processProgressively(BuildWindow buildWindow) {
+            queryJenkinsJobPage().map(buildWindow::select).then(buildWindowSelection -> {
+                List<BuildReference> buildReferences = buildWindowSelection.getBuildReferences();
+                StreamQueue<String> fragments = new StreamQueue<>();
+                fragments.offer(aggregatedReportBuilder.buildProgressiveHead(buildWindowSelection));
+
+                // Forked, so the response is streamed while the builds are still being queried
+                Execution.fork()
+                    .onComplete(execution -> fragments.close())
+                    .start(execution ->
+                        ParallelBatch.of(queryColumnScripts(buildReferences))
+                            .forEach((index, columnScript) -> fragments.offer(columnScript))
+                            .onError(e -> logger.error("Progressive rendering of " + jenkinsJob + " failed", e))
+                            .then(() -> fragments.offer(aggregatedReportBuilder.buildProgressiveFoot()))
+                    );
+
+                context.getResponse().status(Status.OK).contentType(MediaType.TEXT_HTML);
+                sendStream(AggregatedReportBuilder.encodeUtf8(
+                    Streams.flatYield(yieldRequest -> fragments.next()), context.get(ByteBufAllocator.class)));
+            });
+        }
+
+        // A build failing to be queried or rendered is shown as pending, like in the aggregated page, so the other
+        // builds and the foot are still sent
+        private List<Promise<String>> queryColumnScripts(List<BuildReference> buildReferences) {
+            List<Promise<Pair<Build, TestReport>>> queries = queryBuilds(buildReferences, newUpstreamBuildGraph());
+            List<Promise<String>> columnScripts = new ArrayList<>();
+            for (int i = 0; i < queries.size(); i++) {
+                BuildReference buildReference = buildReferences.get(i);
+                columnScripts.add(queries.get(i)
+                    .map(pair -> pair.getRight() == null
+                        ? aggregatedReportBuilder.buildRemoveColumnScript(pair.getLeft().buildReference)
+                        : RENDER_SECONDS.time(() -> aggregatedReportBuilder.buildColumnScript(pair), "column"))
+                    .mapError(e -> {
+                        logger.error("Error while querying " + buildReference, e);
+                        return aggregatedReportBuilder.buildPendingColumnScript(buildReference);
+                    }));
+            }
+            return columnScripts;
+        }
+
+        public Promise<AggregatedReport> aggregate() {
+            return aggregate(BuildWindow.ALL, 0);
+        }
+
+        // The deadline counts from here and covers the job page as well. Builds failing or not queried by the deadline
+        // are left pending, instead of failing the whole report.
+        public Promise<AggregatedReport> aggregate(BuildWindow buildWindow, long deadlineMillis) {
+            long startedAt = System.nanoTime();
+            UpstreamBuildGraph upstreamBuildGraph = newUpstreamBuildGraph();
+
+            return queryJenkinsJobPage(deadlineMillis)
+                .map(buildWindow::select)
+                .flatMap(buildWindowSelection -> {
+                    List<BuildReference> buildReferences = buildWindowSelection.getBuildReferences();
+                    long remainingMillis = deadlineMillis - NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+                    return DeadlineBatch.yieldUntil(queryBuilds(buildReferences, upstreamBuildGraph),
+                        deadlineMillis > 0 ? Math.max(1, remainingMillis) : 0)
+                        .map(results -> {
+                            List<Pair<Build, TestReport>> pairs = new ArrayList<>();
+                            List<BuildReference> pendingBuildReferences = new ArrayList<>();
+                            for (int i = 0; i < results.size(); i++) {
+                                Optional<ExecResult<Pair<Build, TestReport>>> result = results.get(i);
+                                if (result.isPresent() && result.get().isError()) {
+                                    logger.error("Error while querying " + buildReferences.get(i), result.get().getThrowable());
+                                }
+                                if (!result.isPresent() || result.get().isError()) {
+                                    pendingBuildReferences.add(buildReferences.get(i));
+                                } else if (result.get().getValue().getRight() != null) {
+                                    pairs.add(result.get().getValue());
+                                }
+                            }
+                            return aggregateTestReports(pairs, buildWindowSelection, pendingBuildReferences);
+                        });
+                })
+                .map(aggregatedReport -> {
+                    logger.info(String.format("Jenkins calls: %d requested, %d saved by coalescing, %d not modified, " +
+                            "%d distinct builds in the upstream graph",
+                        jenkinsClient.getRequestedCalls(), jenkinsClient.getCoalescedCalls(),
+                        jenkinsClient.getNotModifiedCalls(), upstreamBuildGraph.getNumberOfBuilds()));
+                    return aggregatedReport;
+                });
+        }
+
+        private List<Promise<Pair<Build, TestReport>>> queryBuilds(List<BuildReference> buildReferences,
+            UpstreamBuildGraph upstreamBuildGraph) {
+            return buildReferences.stream()
+                .map(buildReference ->
+                    queryCucumberReport(buildReference)
+                        .left(queryJenkinsBuildInformation(buildReference).flatMap(upstreamBuildGraph::resolve))
+                        .flatMap(pair -> buildCache.putTestReport(host, pair.getLeft(), pair.getRight())
+                            .map(pair::right)))
                 .collect(toList());
         }
 
+        public Promise<Pair<Build, TestReport>> queryBuild(BuildReference buildReference) {
+            return queryBuilds(singletonList(buildReference), newUpstreamBuildGraph()).get(0);
+        }
+
+        // Replaces the build in the report, or adds it if it is new. A build without a test report is removed.
+        AggregatedReport mergeBuild(AggregatedReport aggregatedReport, Pair<Build, TestReport> pair) {
+            BuildReference buildReference = pair.getLeft().buildReference;
+            List<Pair<Build, TestReport>> pairs = aggregatedReport.pairs.stream()
+                .filter(existingPair -> !existingPair.getLeft().buildReference.equals(buildReference))
+                .collect(toList());
+            if (pair.getRight() != null) pairs.add(pair);
+
+            return aggregateTestReports(pairs, BuildWindow.Selection.NONE, aggregatedReport.pendingBuildReferences.stream()
+                .filter(pendingBuildReference -> !pendingBuildReference.equals(buildReference))
+                .collect(toList()));
+        }
+
+        private UpstreamBuildGraph newUpstreamBuildGraph() {
+            return new UpstreamBuildGraph(this::queryJenkinsBuildInformation, UPSTREAM_DEPTH);
+        }
+
         private Promise<List<BuildReference>> queryJenkinsJobPage() {
-            return httpGet(host + jenkinsJob + JENKINS_API_SUFFIX)
-                .map(this::getTextFromResponseBody)
-                .map(this::parseBuildNumbersFromJob);
-        }
-
-        private Promise<Build> queryJenkinsBuildInformationIncludingUpstreamBuild(BuildReference buildReferenceLevel0) {
-            return queryJenkinsBuildInformation(buildReferenceLevel0)
-                .flatMap(buildInfoLevel0 ->
-                    ParallelBatch.of(
-                        buildInfoLevel0.upstreamBuildReferences.stream()
-                            .map(buildReferenceLevel1 -> queryJenkinsBuildInformation(buildReferenceLevel1)
-                                .flatMap(buildInfoLevel1 ->
-                                    ParallelBatch.of(
-                                        buildInfoLevel1.upstreamBuildReferences.stream()
-                                            .map(this::queryJenkinsBuildInformation)
-                                            .collect(toList())
-                                    )
-                                        .yield()
-                                        .map(buildInfoLevel1::withUpstreamBuilds)
-                                ))
-                            .collect(toList())
-                    )
-                        .yield()
-                        .map(buildInfoLevel0::withUpstreamBuilds)
-                );
+            return jenkinsClient.getConditionalText(apiUrl(host + jenkinsJob, JENKINS_JOB_TREE), Endpoint.JOB)
+                .flatMap(text -> PARSE_POOL.parse("job", () -> parseBuildNumbersFromJob(text)))
+                .map(buildReferences -> {
+                    buildCache.putJobBuilds(host, jenkinsJob, buildReferences);
+                    return buildReferences;
+                });
+        }
+
+        // Falls back to the builds of the last job page if the job page fails or misses the deadline
+        private Promise<List<BuildReference>> queryJenkinsJobPage(long deadlineMillis) {
+            Optional<List<BuildReference>> lastBuildReferences = buildCache.getJobBuilds(host, jenkinsJob);
+            if (!lastBuildReferences.isPresent()) return queryJenkinsJobPage();
+
+            return DeadlineBatch.yieldUntil(singletonList(queryJenkinsJobPage()), deadlineMillis)
+                .map(results -> results.get(0)
+                    .filter(ExecResult::isSuccess)
+                    .map(ExecResult::getValue)
+                    .orElseGet(() -> {
+                        logger.warn("Showing the builds of the last job page of " + jenkinsJob);
+                        return lastBuildReferences.get();
+                    }));
         }
 
         private Promise<Build> queryJenkinsBuildInformation(BuildReference buildReference) {
-            return httpGet(host + buildReference.jobPath + buildReference.number + JENKINS_API_SUFFIX)
-                .map(this::getTextFromResponseBody)
-                .map(text -> parseBuildInfo(text, buildReference));
+            return buildCache.getBuild(host, buildReference)
+                .flatMap(cachedBuild -> cachedBuild.map(Promise::value).orElseGet(() ->
+                    jenkinsClient.getText(apiUrl(host + buildReference.jobPath + buildReference.number, JENKINS_BUILD_TREE),
+                        Endpoint.BUILD)
+                        .flatMap(text -> PARSE_POOL.parse("build", () -> parseBuildInfo(text, buildReference)))
+                        .flatMap(build -> buildCache.putBuild(host, build))
+                ));
         }
 
         private Promise<TestReport> queryCucumberReport(BuildReference buildReference) {
-            return httpGet(host + buildReference.jobPath + buildReference.number + CUCUMBER_REPORTS_OVERVIEW_PAGE)
-                .map(this::getTextFromResponseBody)
-                .map(this::repairHtml)
-                .map(text -> parseTestReport(text, buildReference));
+            return buildCache.getTestReport(host, buildReference)
+                .flatMap(cachedTestReport -> cachedTestReport.map(Promise::value).orElseGet(() ->
+                    cucumberJsonPath
+                        .map(jsonPath -> queryCucumberJson(buildReference, jsonPath))
+                        .orElseGet(() -> queryCucumberReportOverviewPage(buildReference))
+                ));
         }
 
-        private Promise<ReceivedResponse> httpGet(String url) {
-            return httpClient.get(URI.create(url))
-                .map(result -> {
-                    logger.info(String.format("Successful GET for %s", url));
-                    return result;
-                })
-                .onError(throwable ->
-                    logger.error(String.format("Error on GET for %s", url), throwable)
-                );
+        private Promise<TestReport> queryCucumberJson(BuildReference buildReference, String cucumberJsonPath) {
+            return jenkinsClient.getText(host + buildReference.jobPath + buildReference.number + "/" + cucumberJsonPath,
+                Endpoint.REPORT)
+                .flatMapError(UnexpectedStatusException.class, this::noReportIfNotFound)
+                .flatMap(text -> PARSE_POOL.parse("cucumber_json", () -> cucumberJsonParser.parse(text, buildReference)));
         }
 
-        private String getTextFromResponseBody(ReceivedResponse receivedResponse) {
-            return receivedResponse.getBody().getText();
+        private Promise<TestReport> queryCucumberReportOverviewPage(BuildReference buildReference) {
+            return jenkinsClient.getText(host + buildReference.jobPath + buildReference.number + CUCUMBER_REPORTS_OVERVIEW_PAGE,
+                Endpoint.REPORT)
+                .flatMapError(UnexpectedStatusException.class, this::noReportIfNotFound)
+                .flatMap(text -> PARSE_POOL.parse("overview_page", () -> {
+                    if (!USE_DOM_PARSERS) return overviewPageParser.parse(text, buildReference);
+                    return parseTestReport(repairHtml(text), buildReference);
+                }));
+        }
+
+        // A build without a published report, e.g. one that failed before the tests ran, has no test report
+        private Promise<String> noReportIfNotFound(UnexpectedStatusException e) {
+            return e.statusCode == 404 ? Promise.value("") : Promise.error(e);
+        }
+
+        private String apiUrl(String url, String tree) {
+            if (!USE_TREE_QUERIES) return url + JENKINS_API_SUFFIX;
+
+            try {
+                return url + JENKINS_API_SUFFIX + "?tree=" + URLEncoder.encode(tree, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e);
+            }
         }
 
         private List<BuildReference> parseBuildNumbersFromJob(String text) {
+            if (!USE_DOM_PARSERS) return jenkinsXmlParser.parseBuildNumbersFromJob(text, jenkinsJob);
+
             Document document = readDocument(text);
             XPathFactory xPathFactory = XPathFactory.instance();
 
@@ -371,6 +786,7 @@ public class Main {
         private Build parseBuildInfo(String text, BuildReference buildReference) {
             try {
                 if (text.contains("Not Found")) return new NullBuild(buildReference);
+                if (!USE_DOM_PARSERS) return jenkinsXmlParser.parseBuildInfo(text, buildReference);
 
                 return parseBuildInfo(readDocument(text), buildReference);
 
@@ -395,7 +811,11 @@ public class Main {
 
             List<ScmChange> scmChanges = parseScmChanges(xPathFactory, document);
 
-            return new Build(buildReference, duration, startedAt, startedByUser, upstreamBuilds, emptyList(), scmChanges);
+            boolean building = getSingleValue("//building", xPathFactory, document)
+                .map(Boolean::parseBoolean).orElse(false);
+
+            return new Build(buildReference, duration, startedAt, startedByUser, upstreamBuilds, emptyList(), scmChanges,
+                building);
         }
 
         private List<BuildReference> parseUpstreamBuilds(XPathFactory xPathFactory, Document document) {
@@ -432,7 +852,7 @@ public class Main {
             return Optional.of(elements.get(0).getText());
         }
 
-        private String repairHtml(String text) {
+        String repairHtml(String text) {
             return Stream.of(text.split("\n"))
                 .map(line -> StringUtils.replaceAll(line, "&ouml;", "ö"))
                 .map(line -> StringUtils.replaceAll(line, "&auml;", "ä"))
@@ -458,7 +878,7 @@ public class Main {
             }
         }
 
-        private TestReport parseTestReport(String text, BuildReference buildReference) {
+        TestReport parseTestReport(String text, BuildReference buildReference) {
             try {
                 if (isBlank(text)) return null;
                 if (text.contains("Not found")) return null;
@@ -510,33 +930,80 @@ public class Main {
             }
         }
 
-        private void renderTestReports(List<? extends Pair<Build, TestReport>> pairs) {
+        void renderTestReports(AggregatedReport aggregatedReport) {
+            // The gzip and the identity page are different representations, each with its own strong ETag
+            String etag = GzipEncoding.isAccepted(context.getRequest())
+                ? removeEnd(aggregatedReport.etag, "\"") + "-gzip\""
+                : aggregatedReport.etag;
+            context.getResponse().getHeaders()
+                .set(HttpHeaderNames.ETAG, etag)
+                .set(HttpHeaderNames.CACHE_CONTROL, "no-cache")
+                .set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+
+            String ifNoneMatch = context.getRequest().getHeaders().get(HttpHeaderNames.IF_NONE_MATCH);
+            if (etag.equals(ifNoneMatch)) {
+                DASHBOARD_REQUESTS.inc("not_modified");
+                context.getResponse().status(304).send();
+                return;
+            }
+
             context.getResponse().status(Status.OK).contentType(MediaType.TEXT_HTML);
 
-            List<TestReport> testReports = pairs.stream().map(Pair::getRight).collect(toList());
+            sendStream(aggregatedReportBuilder.streamHtml(aggregatedReport, context.get(ByteBufAllocator.class)));
+        }
 
-            List<AggregatedTestReportLine> aggregatedTestReportLines = testReports.stream()
-                .flatMap(TestReport::getAllFeatures)
-                .distinct()
-                .map(feature -> createAggregatedTestReportLine(testReports, feature))
-                .sorted(comparing(AggregatedTestReportLine::getFeature))
-                .collect(toList());
+        void renderResults(AggregatedReport aggregatedReport, TestResultsNdjson.Query query) {
+            context.getResponse().status(Status.OK).contentType(TestResultsNdjson.CONTENT_TYPE);
 
-            context.render(aggregatedReportBuilder.buildHtml(pairs, aggregatedTestReportLines));
+            sendStream(AggregatedReportBuilder.encodeUtf8(
+                Streams.publish(TestResultsNdjson.lines(aggregatedReport.testResultMatrix, query)),
+                context.get(ByteBufAllocator.class)));
         }
 
-        private AggregatedTestReportLine createAggregatedTestReportLine(
-            List<TestReport> testReports,
-            Feature feature
-        ) {
-            List<Pair<TestReportLine, TestReport>> allTestReportLinesForThisFeature = testReports.stream()
-                .map(testReport -> Pair.of(
-                    testReport.getTestReportLineByFeature(feature),
-                    testReport))
-                .sorted(comparing(pair -> pair.getRight().buildNumber))
-                .collect(toList());
+        // Static files, the job index and /metrics go through Ratpack's own compressor. Dashboards and results opt out
+        // of it, they are compressed by us for the configured level and a flush after every chunk.
+        private void sendStream(Publisher<ByteBuf> body) {
+            context.getResponse().getHeaders().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+            context.getResponse().noCompress();
+            if (!GzipEncoding.isAccepted(context.getRequest())) {
+                context.getResponse().sendStream(body);
+                return;
+            }
 
-            return new AggregatedTestReportLine(feature, allTestReportLinesForThisFeature);
+            context.getResponse().getHeaders().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+            context.getResponse().sendStream(
+                GzipEncoding.compress(body, context.get(ByteBufAllocator.class), GzipEncoding.LEVEL));
+        }
+
+        AggregatedReport aggregateTestReports(List<? extends Pair<Build, TestReport>> pairs) {
+            return aggregateTestReports(pairs, BuildWindow.Selection.NONE, emptyList());
+        }
+
+        AggregatedReport aggregateTestReports(List<? extends Pair<Build, TestReport>> pairs,
+            BuildWindow.Selection buildWindowSelection, List<BuildReference> pendingBuildReferences) {
+            return AGGREGATE_SECONDS.time(() -> new AggregatedReport(pairs, TestResultMatrix.of(pairs),
+                buildWindowSelection, pendingBuildReferences));
+        }
+
+        // A window of a snapshot covering all builds, without asking Jenkins
+        AggregatedReport selectWindow(AggregatedReport aggregatedReport, BuildWindow buildWindow) {
+            if (buildWindow.isUnbounded()) return aggregatedReport;
+
+            BuildWindow.Selection buildWindowSelection = buildWindow.select(Stream.concat(
+                aggregatedReport.pairs.stream().map(pair -> pair.getLeft().buildReference),
+                aggregatedReport.pendingBuildReferences.stream()
+            ).collect(toList()));
+            Set<BuildReference> selectedBuildReferences = new HashSet<>(buildWindowSelection.getBuildReferences());
+
+            return aggregateTestReports(
+                aggregatedReport.pairs.stream()
+                    .filter(pair -> selectedBuildReferences.contains(pair.getLeft().buildReference))
+                    .collect(toList()),
+                buildWindowSelection,
+                aggregatedReport.pendingBuildReferences.stream()
+                    .filter(selectedBuildReferences::contains)
+                    .collect(toList())
+            );
         }
     }
 
@@ -547,20 +1014,112 @@ public class Main {
         Optional<String> scmRepositoryBaseUrl;
         StringBuilder response = new StringBuilder();
 
-        private String buildHtml(
-            List<? extends Pair<Build, TestReport>> pairs,
-            List<AggregatedTestReportLine> aggregatedTestReportLines
-        ) {
+        String buildHtml(AggregatedReport aggregatedReport) {
+            StringBuilder html = new StringBuilder();
+            for (CharSequence chunk : htmlChunks(aggregatedReport)) {
+                html.append(chunk);
+            }
+            return html.toString();
+        }
+
+        Publisher<ByteBuf> streamHtml(AggregatedReport aggregatedReport, ByteBufAllocator byteBufAllocator) {
+            return encodeUtf8(Streams.publish(htmlChunks(aggregatedReport)), byteBufAllocator);
+        }
+
+        static Publisher<ByteBuf> encodeUtf8(TransformablePublisher<? extends CharSequence> chunks,
+            ByteBufAllocator byteBufAllocator) {
+            return chunks.map(chunk -> {
+                ByteBuf byteBuf = byteBufAllocator.buffer(chunk.length());
+                ByteBufUtil.writeUtf8(byteBuf, chunk);
+                RESPONSE_BYTES.add(byteBuf.readableBytes());
+                return byteBuf;
+            });
+        }
+
+        // The page head, then ROWS_PER_CHUNK table rows at a time, then the page foot. Each chunk is written into the
+        // reused response buffer, so it is only valid until the next one is requested.
+        private Iterable<CharSequence> htmlChunks(AggregatedReport aggregatedReport) {
+            TestResultMatrix testResultMatrix = aggregatedReport.testResultMatrix;
+            List<BuildReference> pendingBuildReferences = aggregatedReport.pendingBuildReferences;
+            int[] columnOrder = columnOrder(testResultMatrix, pendingBuildReferences);
+
+            return () -> new Iterator<CharSequence>() {
+                int nextRow = -1;
+                boolean footWritten = false;
+                long renderNanos = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return !footWritten;
+                }
+
+                @Override
+                public CharSequence next() {
+                    if (footWritten) throw new NoSuchElementException();
+
+                    long startedAt = System.nanoTime();
+                    response.setLength(0);
+                    if (nextRow < 0) {
+                        writeHead(testResultMatrix, aggregatedReport.buildWindowSelection, pendingBuildReferences,
+                            columnOrder);
+                        nextRow = 0;
+                    } else if (nextRow < testResultMatrix.getNumberOfFeatures()) {
+                        int endRow = Math.min(nextRow + ROWS_PER_CHUNK, testResultMatrix.getNumberOfFeatures());
+                        writeRows(testResultMatrix, columnOrder, nextRow, endRow);
+                        nextRow = endRow;
+                    } else {
+                        writeFoot();
+                        footWritten = true;
+                    }
+
+                    renderNanos += System.nanoTime() - startedAt;
+                    if (footWritten) RENDER_SECONDS.observeNanos(renderNanos, "page");
+                    return response;
+                }
+            };
+        }
+
+        // Columns of the matrix and pending builds merged by build number. A pending build at index i is -1 - i.
+        static int[] columnOrder(TestResultMatrix testResultMatrix, List<BuildReference> pendingBuildReferences) {
+            int[] columnOrder = new int[testResultMatrix.getNumberOfBuilds() + pendingBuildReferences.size()];
+            int column = 0;
+            int pending = 0;
+            for (int i = 0; i < columnOrder.length; i++) {
+                boolean takePending = pending < pendingBuildReferences.size()
+                    && (column == testResultMatrix.getNumberOfBuilds()
+                    || TestResultMatrix.compareBuildNumbers(pendingBuildReferences.get(pending).number,
+                    testResultMatrix.getColumns().get(column).getRight().buildNumber) < 0);
+                columnOrder[i] = takePending ? -1 - pending++ : column++;
+            }
+            return columnOrder;
+        }
+
+        private void writeHead(TestResultMatrix testResultMatrix, BuildWindow.Selection buildWindowSelection,
+            List<BuildReference> pendingBuildReferences, int[] columnOrder) {
+            writeDocumentHead();
+            writeTableHeadStart(buildWindowSelection);
+            for (int column : columnOrder) {
+                if (column < 0) {
+                    writePendingColumnHeader(pendingBuildReferences.get(-1 - column));
+                } else {
+                    writeOneColumnHeader(testResultMatrix.getColumns().get(column), testResultMatrix.isSystemFailure(column));
+                }
+            }
+            appendLine("</tr>");
+            appendLine("</thead>");
+        }
+
+        private void writeDocumentHead() {
             appendLine("<!DOCTYPE html>");
             appendLine("<html>");
             appendLine("<head>");
             appendLine("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\" />");
-            appendLine("<script type=\"text/javascript\" src=\"js/jquery.min.js\"></script>");
-            appendLine("<script type=\"text/javascript\" src=\"js/bootstrap.min.js\"></script>");
-            appendLine("<link rel=\"stylesheet\" href=\"css/bootstrap.min.css\" type=\"text/css\"/>");
-            appendLine("<link rel=\"stylesheet\" href=\"css/reporting.css\" type=\"text/css\"/>");
-            appendLine("<link rel=\"stylesheet\" href=\"css/font-awesome.min.css\"/>");
-            appendLine("<link rel=\"stylesheet\" href=\"css/progressbar.css\"/>");
+            appendLine("<script type=\"text/javascript\" src=\"/js/jquery.min.js\"></script>");
+            appendLine("<script type=\"text/javascript\" src=\"/js/bootstrap.min.js\"></script>");
+            appendLine("<link rel=\"stylesheet\" href=\"/css/bootstrap.min.css\" type=\"text/css\"/>");
+            appendLine("<link rel=\"stylesheet\" href=\"/css/reporting.css\" type=\"text/css\"/>");
+            appendLine("<link rel=\"stylesheet\" href=\"/css/font-awesome.min.css\"/>");
+            appendLine("<link rel=\"stylesheet\" href=\"/css/progressbar.css\"/>");
             appendLine("<script>");
             appendLine("function toggleSystemFailures() {");
             appendLine("	var button = document.getElementById('toggle-system-failures-button');");
@@ -584,25 +1143,160 @@ public class Main {
             appendLine("</script>");
             appendLine("</head>");
             appendLine("<body>");
+        }
+
+        private void writeTableHeadStart(BuildWindow.Selection buildWindowSelection) {
             appendLine("<table class=\"stats-table table-hover\">");
             appendLine("<thead>");
             appendLine("<tr class=\"header dont-sort\">");
-            appendLine(
-                "<th>Feature <button id=\"toggle-system-failures-button\" type=\"button\" class=\"btn btn-default\" onclick=\"toggleSystemFailures()\">Hide System Failures</button></th>");
-            pairs.stream()
-                .sorted(comparing(pair -> pair.getRight().buildNumber))
-                .forEach(this::writeOneColumnHeader);
+            append(
+                "<th>Feature <button id=\"toggle-system-failures-button\" type=\"button\" class=\"btn btn-default\" onclick=\"toggleSystemFailures()\">Hide System Failures</button>");
+            buildWindowSelection.getOlderQuery().ifPresent(query ->
+                append(" <a href=\"").append(query).append("\" class=\"btn btn-default\">&laquo; Older</a>"));
+            buildWindowSelection.getNewerQuery().ifPresent(query ->
+                append(" <a href=\"").append(query).append("\" class=\"btn btn-default\">Newer &raquo;</a>"));
+            appendLine("</th>");
+        }
+
+        // Progressive rendering: the page is sent with one pending column per build. Each build then arrives as a
+        // script fragment filling its column, in the order the builds are resolved.
+
+        synchronized String buildProgressiveHead(BuildWindow.Selection buildWindowSelection) {
+            response.setLength(0);
+            writeDocumentHead();
+            appendLine("<script>");
+            appendLine("function fillColumn(buildNumber, headerHtml, systemFailure, cells) {");
+            appendLine("	var header = document.getElementById('build-' + buildNumber);");
+            appendLine("	var column = header.cellIndex;");
+            appendLine("	header.outerHTML = headerHtml;");
+            appendLine("	var rows = document.getElementById('feature-rows').rows;");
+            appendLine("	for (var i = 0; i < rows.length; i ++) {");
+            appendLine("		rows[i].cells[column].className = systemFailure ? 'system-failure' : '';");
+            appendLine("	}");
+            appendLine("	for (var j = 0; j < cells.length; j ++) {");
+            appendLine("		featureRow(cells[j][0]).cells[column].outerHTML = cells[j][1];");
+            appendLine("	}");
+            appendLine("}");
+            appendLine("");
+            appendLine("function removeColumn(buildNumber) {");
+            appendLine("	var header = document.getElementById('build-' + buildNumber);");
+            appendLine("	var column = header.cellIndex;");
+            appendLine("	header.parentNode.removeChild(header);");
+            appendLine("	var rows = document.getElementById('feature-rows').rows;");
+            appendLine("	for (var i = 0; i < rows.length; i ++) {");
+            appendLine("		rows[i].deleteCell(column);");
+            appendLine("	}");
+            appendLine("}");
+            appendLine("");
+            appendLine("function featureRow(featureName) {");
+            appendLine("	var rows = document.getElementById('feature-rows');");
+            appendLine("	var headers = document.querySelector('thead tr').cells;");
+            appendLine("	var i = 0;");
+            appendLine("	for (; i < rows.rows.length; i ++) {");
+            appendLine("		var name = rows.rows[i].cells[0].textContent;");
+            appendLine("		if (name === featureName) return rows.rows[i];");
+            appendLine("		if (name > featureName) break;");
+            appendLine("	}");
+            appendLine("	var row = rows.insertRow(i);");
+            appendLine("	var nameCell = row.insertCell(0);");
+            appendLine("	nameCell.className = 'tagname';");
+            appendLine("	nameCell.textContent = featureName;");
+            appendLine("	for (var j = 1; j < headers.length; j ++) {");
+            appendLine("		row.insertCell(j).className = headers[j].classList.contains('system-failure') ? 'system-failure' : '';");
+            appendLine("	}");
+            appendLine("	return row;");
+            appendLine("}");
+            appendLine("</script>");
+            writeTableHeadStart(buildWindowSelection);
+            buildWindowSelection.getBuildReferences().stream()
+                .map(BuildReference::getNumber)
+                .sorted(TestResultMatrix::compareBuildNumbers)
+                .forEach(buildNumber -> {
+                    append("<th id=\"build-").append(buildNumber).append("\" style=\"vertical-align: top;\">");
+                    append(buildNumber);
+                    append("<br/><i class=\"fa fa-spinner fa-spin\"></i>");
+                    appendLine("</th>");
+                });
             appendLine("</tr>");
             appendLine("</thead>");
+            appendLine("<tbody id=\"feature-rows\">");
+            return response.toString();
+        }
+
+        synchronized String buildColumnScript(Pair<Build, TestReport> pair) {
+            TestResultMatrix testResultMatrix = TestResultMatrix.of(singletonList(pair));
+
+            response.setLength(0);
+            writeOneColumnHeader(pair, testResultMatrix.isSystemFailure(0));
+            String headerHtml = response.toString().trim();
+
+            StringBuilder script = new StringBuilder("<script>fillColumn(");
+            script.append(jsString(pair.getRight().buildNumber)).append(", ");
+            script.append(jsString(headerHtml)).append(", ");
+            script.append(testResultMatrix.isSystemFailure(0)).append(", [");
+            for (int row = 0; row < testResultMatrix.getNumberOfFeatures(); row++) {
+                response.setLength(0);
+                writeOneTestResult(testResultMatrix, row, 0);
+                if (row > 0) script.append(", ");
+                script.append("[").append(jsString(testResultMatrix.getFeature(row).name));
+                script.append(", ").append(jsString(response.toString().trim())).append("]");
+            }
+            script.append("]);</script>\n");
+            return script.toString();
+        }
 
-            aggregatedTestReportLines.forEach(aggregatedTestReportLine -> {
+        String buildRemoveColumnScript(BuildReference buildReference) {
+            return "<script>removeColumn(" + jsString(buildReference.number) + ");</script>\n";
+        }
+
+        synchronized String buildPendingColumnScript(BuildReference buildReference) {
+            response.setLength(0);
+            writePendingColumnHeader(buildReference);
+            return "<script>fillColumn(" + jsString(buildReference.number) + ", " + jsString(response.toString().trim())
+                + ", false, []);</script>\n";
+        }
+
+        synchronized String buildProgressiveFoot() {
+            response.setLength(0);
+            appendLine("</tbody>");
+            writeFoot();
+            return response.toString();
+        }
+
+        private static String jsString(String text) {
+            StringBuilder quoted = new StringBuilder("\"");
+            for (char character : text.toCharArray()) {
+                switch (character) {
+                    case '"': quoted.append("\\\""); break;
+                    case '\\': quoted.append("\\\\"); break;
+                    case '\n': quoted.append("\\n"); break;
+                    case '\r': quoted.append("\\r"); break;
+                    // Keeps "</script>" in feature names or commit comments from ending the fragment
+                    case '<': quoted.append("\\u003c"); break;
+                    case '\u2028': quoted.append("\\u2028"); break;
+                    case '\u2029': quoted.append("\\u2029"); break;
+                    default: quoted.append(character);
+                }
+            }
+            return quoted.append("\"").toString();
+        }
+
+        private void writeRows(TestResultMatrix testResultMatrix, int[] columnOrder, int startRow, int endRow) {
+            for (int row = startRow; row < endRow; row++) {
                 appendLine("<tr>");
-                append("<td class=\"tagname\">").append(aggregatedTestReportLine.feature.name).appendLine("</td>");
-                aggregatedTestReportLine
-                    .testReportLinesAndTestReport
-                    .forEach(this::writeOneTestResult);
+                append("<td class=\"tagname\">").append(testResultMatrix.getFeature(row).name).appendLine("</td>");
+                for (int column : columnOrder) {
+                    if (column < 0) {
+                        appendLine("<td></td>");
+                    } else {
+                        writeOneTestResult(testResultMatrix, row, column);
+                    }
+                }
                 appendLine("</tr>");
-            });
+            }
+        }
+
+        private void writeFoot() {
             appendLine("</table>");
             appendLine("<script>");
             appendLine("$(function () {");
@@ -615,17 +1309,15 @@ public class Main {
 //            appendLine("</table>");
             appendLine("</body>");
             appendLine("</html>");
-
-            return response.toString();
         }
 
-        private void writeOneColumnHeader(Pair<Build, TestReport> pair) {
+        private void writeOneColumnHeader(Pair<Build, TestReport> pair, boolean isSystemFailure) {
             TestReport testReport = pair.getRight();
             Build build = pair.getLeft();
 
             try {
                 append("<th style=\"vertical-align: top;\"");
-                if (testReport.isSystemFailure()) {
+                if (isSystemFailure) {
                     append(" class=\"system-failure\"");
                 }
                 appendLine(">");
@@ -659,6 +1351,13 @@ public class Main {
             }
         }
 
+        // A build not queried in time, or failed to be queried
+        private void writePendingColumnHeader(BuildReference buildReference) {
+            appendLine("<th style=\"vertical-align: top;\" class=\"pending\">");
+            writeBuildLink(buildReference.jobPath, buildReference.number);
+            appendLine("<i class=\"fa fa-hourglass-half\"></i> pending</th>");
+        }
+
         private void writeBuildLink(String jobUrl, String buildNumber) {
             append("<a href=\"").append(host).append(jobUrl).append(buildNumber).append("/\">");
             append(buildNumber);
@@ -726,16 +1425,17 @@ public class Main {
             append("</a>");
         }
 
-        private void writeOneTestResult(Pair<TestReportLine, TestReport> testReportLineAndTestReport) {
-            String buildNumber = testReportLineAndTestReport.getRight().buildNumber;
-            boolean isSystemFailure = testReportLineAndTestReport.getRight().isSystemFailure();
-            String featureLink = testReportLineAndTestReport.getLeft().feature.link;
-            String status = testReportLineAndTestReport.getLeft().status;
-            int failedAndSkippedSteps = testReportLineAndTestReport.getLeft().getFailedAndSkippedStepsInt();
-            int totalSteps = testReportLineAndTestReport.getLeft().getTotalStepsInt();
+        private void writeOneTestResult(TestResultMatrix testResultMatrix, int row, int column) {
+            String buildNumber = testResultMatrix.getTestReport(column).buildNumber;
+            boolean isSystemFailure = testResultMatrix.isSystemFailure(column);
+            String featureLink = testResultMatrix.getFeatureLink(row, column);
+            String status = testResultMatrix.getStatus(row, column);
+            int failedAndSkippedSteps = testResultMatrix.getFailedSteps(row, column)
+                + testResultMatrix.getSkippedSteps(row, column);
+            int totalSteps = testResultMatrix.getTotalSteps(row, column);
 
             append("<td class=\"");
-            append(status.toLowerCase());
+            append(testResultMatrix.getStatusCssClass(row, column));
             if (isSystemFailure) {
                 append(" system-failure");
             }
@@ -0,0 +1,235 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonMap;
+
+import ratpack.exec.Promise;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Counters, gauges and latency histograms of the fetch, parse and render stages, written in Prometheus' text format
+ * on {@code /metrics}. Metrics are registered once, usually as constants of the class they measure, and are then
+ * updated lock free. Registering a name twice fails, so a second instance of a measured class can't take over the
+ * metrics of the first.
+ */
+class Metrics {
+    static final Metrics METRICS = new Metrics();
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] BUCKET_BOUNDS_SECONDS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+    };
+
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    Counter counter(String name, String help, String... labelNames) {
+        return register(new Counter(name, help, labelNames));
+    }
+
+    Histogram histogram(String name, String help, String... labelNames) {
+        return register(new Histogram(name, help, labelNames));
+    }
+
+    // Sampled on every scrape
+    void gauge(String name, String help, DoubleSupplier value) {
+        register(new SampledMetric(name, help, "gauge", new String[0],
+            () -> unlabelled(value.getAsDouble())));
+    }
+
+    void gauge(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> values) {
+        register(new SampledMetric(name, help, "gauge", new String[] {labelName}, () -> {
+            Map<List<String>, Number> samples = new TreeMap<>(Metrics::compareLabelValues);
+            values.get().forEach((labelValue, value) -> samples.put(asList(labelValue), value));
+            return samples;
+        }));
+    }
+
+    void counter(String name, String help, DoubleSupplier value) {
+        register(new SampledMetric(name, help, "counter", new String[0],
+            () -> unlabelled(value.getAsDouble())));
+    }
+
+    String scrape() {
+        StringBuilder text = new StringBuilder();
+        new TreeMap<>(metrics).values().forEach(metric -> metric.write(text));
+        return text.toString();
+    }
+
+    private <M extends Metric> M register(M metric) {
+        if (metrics.putIfAbsent(metric.name, metric) != null) {
+            throw new IllegalStateException(metric.name + " is already registered");
+        }
+        return metric;
+    }
+
+    private static Map<List<String>, Number> unlabelled(double value) {
+        return singletonMap(emptyList(), value);
+    }
+
+    private static int compareLabelValues(List<String> labelValues, List<String> otherLabelValues) {
+        return String.join("\u0000", labelValues).compareTo(String.join("\u0000", otherLabelValues));
+    }
+
+    private abstract static class Metric {
+        final String name;
+        final String help;
+        final String type;
+        final String[] labelNames;
+
+        Metric(String name, String help, String type, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+        }
+
+        void write(StringBuilder text) {
+            text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            writeSamples(text);
+        }
+
+        abstract void writeSamples(StringBuilder text);
+
+        void writeSample(StringBuilder text, String suffix, List<String> labelValues, String le, Number value) {
+            text.append(name).append(suffix);
+            if (!labelValues.isEmpty() || le != null) {
+                text.append('{');
+                for (int i = 0; i < labelValues.size(); i++) {
+                    if (i > 0) text.append(',');
+                    text.append(labelNames[i]).append("=\"").append(escape(labelValues.get(i))).append('"');
+                }
+                if (le != null) {
+                    if (!labelValues.isEmpty()) text.append(',');
+                    text.append("le=\"").append(le).append('"');
+                }
+                text.append('}');
+            }
+            text.append(' ').append(value).append('\n');
+        }
+
+        List<String> labelValues(String[] labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " expects labels " + asList(labelNames));
+            }
+            return asList(labelValues);
+        }
+
+        private static String escape(String labelValue) {
+            return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+
+    static class Counter extends Metric {
+        private final Map<List<String>, LongAdder> values = new ConcurrentHashMap<>();
+
+        private Counter(String name, String help, String[] labelNames) {
+            super(name, help, "counter", labelNames);
+        }
+
+        void inc(String... labelValues) {
+            add(1, labelValues);
+        }
+
+        void add(long amount, String... labelValues) {
+            values.computeIfAbsent(labelValues(labelValues), key -> new LongAdder()).add(amount);
+        }
+
+        @Override
+        void writeSamples(StringBuilder text) {
+            Map<List<String>, LongAdder> sorted = new TreeMap<>(Metrics::compareLabelValues);
+            sorted.putAll(values);
+            sorted.forEach((labelValues, value) -> writeSample(text, "", labelValues, null, value.sum()));
+        }
+    }
+
+    static class Histogram extends Metric {
+        private final Map<List<String>, Buckets> values = new ConcurrentHashMap<>();
+
+        private Histogram(String name, String help, String[] labelNames) {
+            super(name, help, "histogram", labelNames);
+        }
+
+        void observeNanos(long nanos, String... labelValues) {
+            values.computeIfAbsent(labelValues(labelValues), key -> new Buckets()).observe(nanos / 1e9);
+        }
+
+        <T> T time(Supplier<T> block, String... labelValues) {
+            long startedAt = System.nanoTime();
+            try {
+                return block.get();
+            } finally {
+                observeNanos(System.nanoTime() - startedAt, labelValues);
+            }
+        }
+
+        // Measured from subscription to the result, errors included
+        <T> Promise<T> time(Promise<T> promise, String... labelValues) {
+            return Promise.sync(System::nanoTime)
+                .flatMap(startedAt -> promise.wiretap(result ->
+                    observeNanos(System.nanoTime() - startedAt, labelValues)));
+        }
+
+        @Override
+        void writeSamples(StringBuilder text) {
+            Map<List<String>, Buckets> sorted = new TreeMap<>(Metrics::compareLabelValues);
+            sorted.putAll(values);
+            sorted.forEach((labelValues, buckets) -> {
+                long cumulativeCount = 0;
+                for (int i = 0; i < BUCKET_BOUNDS_SECONDS.length; i++) {
+                    cumulativeCount += buckets.counts[i].sum();
+                    writeSample(text, "_bucket", labelValues, String.valueOf(BUCKET_BOUNDS_SECONDS[i]), cumulativeCount);
+                }
+                cumulativeCount += buckets.counts[BUCKET_BOUNDS_SECONDS.length].sum();
+                writeSample(text, "_bucket", labelValues, "+Inf", cumulativeCount);
+                writeSample(text, "_sum", labelValues, null, buckets.sum.sum());
+                writeSample(text, "_count", labelValues, null, cumulativeCount);
+            });
+        }
+    }
+
+    private static class Buckets {
+        private final LongAdder[] counts = new LongAdder[BUCKET_BOUNDS_SECONDS.length + 1];
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Buckets() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        void observe(double seconds) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_SECONDS.length && seconds > BUCKET_BOUNDS_SECONDS[bucket]) {
+                bucket++;
+            }
+            counts[bucket].increment();
+            sum.add(seconds);
+        }
+    }
+
+    private static class SampledMetric extends Metric {
+        private final Supplier<Map<List<String>, ? extends Number>> samples;
+
+        SampledMetric(String name, String help, String type, String[] labelNames,
+            Supplier<Map<List<String>, ? extends Number>> samples) {
+            super(name, help, type, labelNames);
+            this.samples = samples;
+        }
+
+        @Override
+        void writeSamples(StringBuilder text) {
+            samples.get().forEach((labelValues, value) -> writeSample(text, "", labelValues, null, value));
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package kreyling.cragg;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts the feature rows of the cucumber reports plugin's overview page in a single forward pass over the
+ * characters, without repairing the HTML or building a document. Only the cells needed for a {@link TestReportLine}
+ * are copied: the link in the first cell and the text of the total, failed and skipped steps and of the status.
+ */
+class OverviewPageParser {
+    private static final int TOTAL_STEPS_CELL = 4;
+    private static final int FAILED_STEPS_CELL = 6;
+    private static final int SKIPPED_STEPS_CELL = 7;
+    private static final int STATUS_CELL = 11;
+
+    TestReport parse(CharSequence html, BuildReference buildReference) {
+        try {
+            if (isBlank(html)) return null;
+            if (StringUtils.contains(html, "Not found")) return null;
+            if (StringUtils.contains(html, "You have no features in your cucumber report")) return null;
+            if (StringUtils.contains(html, "Something went wrong")) return null;
+
+            PageScanner pageScanner = new PageScanner(html);
+            pageScanner.scan();
+
+            // Not a report, e.g. an error or login page, or the report isn't published yet
+            String buildNumber = StringUtils.substringBetween(pageScanner.title.toString(), "(no ", ")");
+            if (buildNumber == null || pageScanner.testReportLines.isEmpty()) return null;
+
+            return new TestReport(buildNumber, pageScanner.testReportLines);
+        } catch (RuntimeException e) {
+            throw new RuntimeException(buildReference + ": " + StringUtils.left(html.toString(), 200), e);
+        }
+    }
+
+    private static class PageScanner {
+        private final CharSequence html;
+        private final int length;
+
+        private final StringBuilder title = new StringBuilder();
+        private final List<TestReportLine> testReportLines = new ArrayList<>();
+
+        private boolean inTitle;
+
+        private boolean inRow;
+        private boolean featureRow;
+        private int cellIndex;
+        private String featureName;
+        private String featureLink;
+        private String[] cellTexts;
+
+        private boolean inCell;
+        private int cellDepth;
+        private StringBuilder cellText;
+        private StringBuilder anchorText;
+
+        PageScanner(CharSequence html) {
+            this.html = html;
+            this.length = html.length();
+        }
+
+        void scan() {
+            int position = 0;
+            while (position < length) {
+                int tagStart = indexOf('<', position);
+                if (tagStart > position) text(position, tagStart);
+                if (tagStart == length) return;
+
+                position = tag(tagStart);
+            }
+        }
+
+        private int tag(int tagStart) {
+            if (startsWith(tagStart, "<!--")) return indexOf("-->", tagStart) + 3;
+            if (startsWith(tagStart, "<!") || startsWith(tagStart, "<?")) return indexOf('>', tagStart) + 1;
+
+            boolean closing = tagStart + 1 < length && html.charAt(tagStart + 1) == '/';
+            int nameStart = tagStart + (closing ? 2 : 1);
+            int nameEnd = nameStart;
+            while (nameEnd < length && Character.isLetterOrDigit(html.charAt(nameEnd))) nameEnd++;
+
+            if (nameEnd == nameStart) {
+                // A lonely '<' is text
+                text(tagStart, tagStart + 1);
+                return tagStart + 1;
+            }
+
+            int tagEnd = indexOf('>', nameEnd);
+            if (closing) {
+                endElement(nameStart, nameEnd);
+            } else if (isName(nameStart, nameEnd, "script") || isName(nameStart, nameEnd, "style")) {
+                return skipRawText(nameStart, nameEnd, tagEnd);
+            } else {
+                boolean selfClosing = tagEnd < length && html.charAt(tagEnd - 1) == '/';
+                startElement(nameStart, nameEnd, tagEnd, selfClosing || isVoidElement(nameStart, nameEnd));
+            }
+
+            return Math.min(tagEnd + 1, length);
+        }
+
+        private void startElement(int nameStart, int nameEnd, int tagEnd, boolean empty) {
+            if (isName(nameStart, nameEnd, "title")) {
+                inTitle = true;
+            } else if (isName(nameStart, nameEnd, "tr")) {
+                startRow();
+            } else if (inRow && !inCell && (isName(nameStart, nameEnd, "td") || isName(nameStart, nameEnd, "th"))) {
+                startCell(nameEnd, tagEnd);
+            } else if (inCell && !empty) {
+                cellDepth++;
+                if (featureRow && cellIndex == 0 && cellDepth == 1 && featureName == null
+                    && isName(nameStart, nameEnd, "a")) {
+                    featureLink = decode(attributeValue(nameEnd, tagEnd, "href"));
+                    anchorText = new StringBuilder();
+                }
+            }
+        }
+
+        private void endElement(int nameStart, int nameEnd) {
+            if (isName(nameStart, nameEnd, "title")) {
+                inTitle = false;
+            } else if (isName(nameStart, nameEnd, "tr")) {
+                endRow();
+            } else if (inCell && (isName(nameStart, nameEnd, "td") || isName(nameStart, nameEnd, "th"))) {
+                endCell();
+            } else if (inCell && cellDepth > 0) {
+                if (anchorText != null && cellDepth == 1 && isName(nameStart, nameEnd, "a")) {
+                    featureName = anchorText.toString();
+                    anchorText = null;
+                }
+                cellDepth--;
+            }
+        }
+
+        private void text(int start, int end) {
+            if (inTitle) appendDecoded(title, start, end);
+            if (!inCell) return;
+
+            if (cellDepth == 0 && cellText != null) appendDecoded(cellText, start, end);
+            if (cellDepth == 1 && anchorText != null) appendDecoded(anchorText, start, end);
+        }
+
+        private void startRow() {
+            if (inRow) endRow();
+
+            inRow = true;
+            featureRow = false;
+            cellIndex = -1;
+            featureName = null;
+            featureLink = null;
+            cellTexts = null;
+        }
+
+        private void startCell(int attributesStart, int tagEnd) {
+            inCell = true;
+            cellDepth = 0;
+            cellIndex++;
+
+            if (cellIndex == 0) {
+                featureRow = "tagname".equals(attributeValue(attributesStart, tagEnd, "class"));
+                if (featureRow) cellTexts = new String[STATUS_CELL + 1];
+            }
+
+            cellText = featureRow && isNeededCell(cellIndex) ? new StringBuilder() : null;
+        }
+
+        private void endCell() {
+            if (cellText != null) cellTexts[cellIndex] = cellText.toString();
+
+            inCell = false;
+            cellText = null;
+            anchorText = null;
+        }
+
+        private void endRow() {
+            if (inCell) endCell();
+            inRow = false;
+
+            if (!featureRow) return;
+
+            if (cellIndex < STATUS_CELL) {
+                throw new IllegalStateException("Row of feature " + featureName + " has only " + (cellIndex + 1) + " cells");
+            }
+
+            testReportLines.add(new TestReportLine(
+                new Feature(featureName, featureLink),
+                cellTexts[FAILED_STEPS_CELL],
+                cellTexts[SKIPPED_STEPS_CELL],
+                cellTexts[TOTAL_STEPS_CELL],
+                cellTexts[STATUS_CELL]
+            ));
+        }
+
+        private boolean isNeededCell(int index) {
+            return index == TOTAL_STEPS_CELL || index == FAILED_STEPS_CELL || index == SKIPPED_STEPS_CELL
+                || index == STATUS_CELL;
+        }
+
+        private int skipRawText(int nameStart, int nameEnd, int tagEnd) {
+            String closingTag = "</" + html.subSequence(nameStart, nameEnd);
+            int closingTagStart = indexOfIgnoreCase(closingTag, tagEnd);
+            return Math.min(indexOf('>', closingTagStart) + 1, length);
+        }
+
+        private String attributeValue(int start, int end, String name) {
+            int position = start;
+            while (position < end) {
+                while (position < end && !Character.isLetter(html.charAt(position))) position++;
+                int attributeNameStart = position;
+                while (position < end && (Character.isLetterOrDigit(html.charAt(position)) || html.charAt(position) == '-')) {
+                    position++;
+                }
+                boolean matches = isName(attributeNameStart, position, name);
+
+                while (position < end && html.charAt(position) == ' ') position++;
+                if (position >= end || html.charAt(position) != '=') continue;
+                position++;
+                while (position < end && html.charAt(position) == ' ') position++;
+                if (position >= end) return null;
+
+                char quote = html.charAt(position);
+                int valueStart;
+                int valueEnd;
+                if (quote == '"' || quote == '\'') {
+                    valueStart = position + 1;
+                    valueEnd = valueStart;
+                    while (valueEnd < end && html.charAt(valueEnd) != quote) valueEnd++;
+                    position = valueEnd + 1;
+                } else {
+                    valueStart = position;
+                    valueEnd = valueStart;
+                    while (valueEnd < end && !Character.isWhitespace(html.charAt(valueEnd))) valueEnd++;
+                    position = valueEnd;
+                }
+
+                if (matches) return html.subSequence(valueStart, valueEnd).toString();
+            }
+            return null;
+        }
+
+        private void appendDecoded(StringBuilder target, int start, int end) {
+            int position = start;
+            while (position < end) {
+                char c = html.charAt(position);
+                if (c == '&') {
+                    int entityEnd = indexOf(';', position);
+                    if (entityEnd < end && entityEnd - position <= 10) {
+                        String decoded = decodeEntity(html.subSequence(position + 1, entityEnd).toString());
+                        if (decoded != null) {
+                            target.append(decoded);
+                            position = entityEnd + 1;
+                            continue;
+                        }
+                    }
+                }
+                target.append(c);
+                position++;
+            }
+        }
+
+        private String decode(String text) {
+            if (text == null || text.indexOf('&') < 0) return text;
+
+            StringBuilder decoded = new StringBuilder(text.length());
+            new PageScanner(text).appendDecoded(decoded, 0, text.length());
+            return decoded.toString();
+        }
+
+        private static String decodeEntity(String entity) {
+            switch (entity) {
+                case "amp": return "&";
+                case "lt": return "<";
+                case "gt": return ">";
+                case "quot": return "\"";
+                case "apos": return "'";
+                case "nbsp": return " ";
+                case "auml": return "ä";
+                case "ouml": return "ö";
+                case "uuml": return "ü";
+                case "Auml": return "Ä";
+                case "Ouml": return "Ö";
+                case "Uuml": return "Ü";
+                case "szlig": return "ß";
+                default:
+                    if (entity.startsWith("#x") || entity.startsWith("#X")) return codePoint(entity.substring(2), 16);
+                    if (entity.startsWith("#")) return codePoint(entity.substring(1), 10);
+                    return null;
+            }
+        }
+
+        private static String codePoint(String digits, int radix) {
+            try {
+                return new String(Character.toChars(Integer.parseInt(digits, radix)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private boolean isVoidElement(int nameStart, int nameEnd) {
+            return isName(nameStart, nameEnd, "br") || isName(nameStart, nameEnd, "img")
+                || isName(nameStart, nameEnd, "meta") || isName(nameStart, nameEnd, "link")
+                || isName(nameStart, nameEnd, "input") || isName(nameStart, nameEnd, "hr")
+                || isName(nameStart, nameEnd, "col");
+        }
+
+        private boolean isName(int start, int end, String name) {
+            if (end - start != name.length()) return false;
+            for (int i = 0; i < name.length(); i++) {
+                if (Character.toLowerCase(html.charAt(start + i)) != name.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private boolean startsWith(int start, String prefix) {
+            if (start + prefix.length() > length) return false;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (html.charAt(start + i) != prefix.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private int indexOf(char c, int from) {
+            for (int i = from; i < length; i++) {
+                if (html.charAt(i) == c) return i;
+            }
+            return length;
+        }
+
+        private int indexOf(String string, int from) {
+            for (int i = from; i < length; i++) {
+                if (startsWith(i, string)) return i;
+            }
+            return length;
+        }
+
+        private int indexOfIgnoreCase(String string, int from) {
+            for (int i = from; i + string.length() <= length; i++) {
+                if (html.charAt(i) == '<' && isName(i, i + string.length(), string.toLowerCase())) return i;
+            }
+            return length;
+        }
+    }
+}
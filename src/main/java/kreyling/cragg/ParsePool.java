@@ -0,0 +1,73 @@
+package kreyling.cragg;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static kreyling.cragg.Metrics.METRICS;
+
+import kreyling.cragg.Metrics.Histogram;
+import ratpack.exec.Promise;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of threads parsing the pages fetched from Jenkins. Parsing a big overview page takes long enough to
+ * hold up everything else on a compute thread, so it is done here and the execution resumes once the result is
+ * there. Pages wait in an unbounded queue, there are never more of them than builds being queried.
+ */
+class ParsePool {
+    public static final int PARSE_THREADS =
+        Integer.getInteger("cragg.parseThreads", Runtime.getRuntime().availableProcessors());
+
+    static final ParsePool PARSE_POOL = new ParsePool(PARSE_THREADS);
+
+    private static final Histogram PARSE_SECONDS = METRICS.histogram("cragg_parse_seconds",
+        "Time to parse a page from Jenkins", "page");
+    private static final Histogram QUEUE_SECONDS = METRICS.histogram("cragg_parse_queue_seconds",
+        "Time a page from Jenkins waited for a parse thread", "page");
+
+    static {
+        PARSE_POOL.registerMetrics(METRICS);
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    ParsePool(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "cragg-parse-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Only for the shared pool, a name can be registered once
+    void registerMetrics(Metrics metrics) {
+        metrics.gauge("cragg_parse_queue_depth", "Pages from Jenkins waiting for a parse thread",
+            () -> executor.getQueue().size());
+        metrics.gauge("cragg_parse_threads_active", "Parse threads busy with a page", executor::getActiveCount);
+    }
+
+    <T> Promise<T> parse(String page, Supplier<T> parser) {
+        return Promise.async(downstream -> {
+            long queuedAt = System.nanoTime();
+            executor.execute(() -> {
+                QUEUE_SECONDS.observeNanos(System.nanoTime() - queuedAt, page);
+                T result;
+                try {
+                    result = PARSE_SECONDS.time(parser, page);
+                } catch (Throwable e) {
+                    downstream.error(e);
+                    return;
+                }
+                downstream.success(result);
+            });
+        });
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,117 @@
+package kreyling.cragg;
+
+import static java.util.Optional.empty;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import kreyling.cragg.Main.AggregatedReport;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.JenkinsRequestProcessor;
+import ratpack.exec.ExecController;
+import ratpack.exec.Execution;
+import ratpack.service.Service;
+import ratpack.service.StartEvent;
+import ratpack.service.StopEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Refreshes the aggregated report of a job in the background, so requests are served from a ready-made snapshot
+ * instead of querying Jenkins. Builds already known are answered by the {@link BuildCache}, so each poll only fetches
+ * the job page and the builds that are new or were still running. An interval of 0 disables polling.
+ * <p>
+ * Builds Jenkins notifies us about are merged into the snapshot as soon as they are finished, without reading the job
+ * page again. Merges arriving while a poll is running are applied to its result as well, as it may have read the job
+ * page before the build finished. Without polling, notifications are ignored, as a snapshot they created would never
+ * be refreshed.
+ */
+class ReportPoller implements Service {
+    private static Logger logger = LoggerFactory.getLogger(ReportPoller.class);
+
+    private final JenkinsRequestProcessor jenkinsRequestProcessor;
+    private final int intervalSeconds;
+
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private volatile Optional<AggregatedReport> snapshot = empty();
+    private final List<Function<AggregatedReport, AggregatedReport>> mergesDuringPoll = new ArrayList<>();
+    private ScheduledFuture<?> scheduledPolls;
+
+    ReportPoller(JenkinsRequestProcessor jenkinsRequestProcessor, int intervalSeconds) {
+        this.jenkinsRequestProcessor = jenkinsRequestProcessor;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    Optional<AggregatedReport> getSnapshot() {
+        return snapshot;
+    }
+
+    boolean isPolling() {
+        return intervalSeconds > 0;
+    }
+
+    @Override
+    public void onStart(StartEvent event) {
+        if (!isPolling()) return;
+
+        ExecController execController = event.getRegistry().get(ExecController.class);
+        scheduledPolls = execController.getExecutor().scheduleWithFixedDelay(this::poll, 0, intervalSeconds, SECONDS);
+    }
+
+    @Override
+    public void onStop(StopEvent event) {
+        if (scheduledPolls != null) scheduledPolls.cancel(false);
+    }
+
+    void buildFinished(BuildReference buildReference) {
+        if (!isPolling()) return;
+
+        if (!snapshot.isPresent() && !polling.get()) {
+            poll();
+            return;
+        }
+
+        Execution.fork()
+            .start(execution -> jenkinsRequestProcessor.queryBuild(buildReference)
+                .onError(throwable -> logger.error("Error while querying notified build " + buildReference, throwable))
+                .then(pair -> merge(aggregatedReport -> jenkinsRequestProcessor.mergeBuild(aggregatedReport, pair)))
+            );
+    }
+
+    private synchronized void merge(Function<AggregatedReport, AggregatedReport> update) {
+        snapshot = snapshot.map(update);
+        if (polling.get()) mergesDuringPoll.add(update);
+    }
+
+    private synchronized void startPoll() {
+        mergesDuringPoll.clear();
+    }
+
+    private synchronized void replaceSnapshot(AggregatedReport aggregatedReport) {
+        AggregatedReport mergedReport = aggregatedReport;
+        for (Function<AggregatedReport, AggregatedReport> update : mergesDuringPoll) {
+            mergedReport = update.apply(mergedReport);
+        }
+        mergesDuringPoll.clear();
+        snapshot = Optional.of(mergedReport);
+    }
+
+    private void poll() {
+        // A slow Jenkins may take longer than the interval, don't pile up polls
+        if (!polling.compareAndSet(false, true)) return;
+        startPoll();
+
+        Execution.fork()
+            .onComplete(execution -> polling.set(false))
+            .start(execution -> jenkinsRequestProcessor.aggregate()
+                .onError(throwable -> logger.error("Error while polling " + jenkinsRequestProcessor.getJenkinsJob(), throwable))
+                .then(this::replaceSnapshot)
+            );
+    }
+}
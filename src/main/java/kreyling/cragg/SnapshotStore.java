@@ -0,0 +1,284 @@
+package kreyling.cragg;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Optional.empty;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.ScmChange;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+import ratpack.exec.Blocking;
+import ratpack.exec.Execution;
+import ratpack.service.Service;
+import ratpack.service.StartEvent;
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Directory of compact binary records, one file per build and record type, below a directory per Jenkins host and job:
+ * {@code <directory>/<host>/<job>/<build number>.build} and {@code .report}. Records are read on demand and written as soon
+ * as a finished build has been fetched. On start, records older than the retention time and leftovers of interrupted
+ * writes are removed.
+ */
+class SnapshotStore implements Service {
+    private static Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final int RECORD_VERSION = 1;
+
+    private static final String BUILD_SUFFIX = ".build";
+    private static final String TEST_REPORT_SUFFIX = ".report";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Optional<Path> directory;
+    private final int retentionDays;
+
+    private SnapshotStore(Optional<Path> directory, int retentionDays) {
+        this.directory = directory;
+        this.retentionDays = retentionDays;
+    }
+
+    static SnapshotStore of(String directory, int retentionDays) {
+        if (StringUtils.isBlank(directory)) return disabled();
+        return new SnapshotStore(Optional.of(Paths.get(directory)), retentionDays);
+    }
+
+    static SnapshotStore disabled() {
+        return new SnapshotStore(empty(), 0);
+    }
+
+    boolean isEnabled() {
+        return directory.isPresent();
+    }
+
+    @Override
+    public void onStart(StartEvent event) {
+        if (!isEnabled()) return;
+
+        Execution.fork().start(execution -> Blocking.op(this::compact).then());
+    }
+
+    Optional<Build> readBuild(String host, BuildReference buildReference) {
+        return read(fileFor(host, buildReference, BUILD_SUFFIX), input -> readBuildRecord(input, buildReference));
+    }
+
+    void writeBuild(String host, Build build) {
+        write(fileFor(host, build.buildReference, BUILD_SUFFIX), output -> writeBuildRecord(output, build));
+    }
+
+    Optional<TestReport> readTestReport(String host, BuildReference buildReference) {
+        return read(fileFor(host, buildReference, TEST_REPORT_SUFFIX), this::readTestReportRecord);
+    }
+
+    void writeTestReport(String host, BuildReference buildReference, TestReport testReport) {
+        write(fileFor(host, buildReference, TEST_REPORT_SUFFIX), output -> writeTestReportRecord(output, testReport));
+    }
+
+    void compact() {
+        if (!isEnabled()) return;
+
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+
+        try (Stream<Path> files = Files.walk(directory.get())) {
+            long removed = files
+                .filter(Files::isRegularFile)
+                .filter(file -> file.toString().endsWith(TEMP_SUFFIX) || lastModified(file) < expiredBefore)
+                .filter(this::delete)
+                .count();
+            logger.info(String.format("Removed %d expired snapshot records from %s", removed, directory.get()));
+        } catch (NoSuchFileException e) {
+            // Nothing stored yet
+        } catch (IOException e) {
+            logger.warn("Could not compact snapshot store " + directory.get(), e);
+        }
+    }
+
+    private <T> Optional<T> read(Path file, RecordReader<T> recordReader) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != RECORD_VERSION) {
+                delete(file);
+                return empty();
+            }
+            return Optional.of(recordReader.read(input));
+        } catch (NoSuchFileException e) {
+            return empty();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Dropping unreadable snapshot record " + file, e);
+            delete(file);
+            return empty();
+        }
+    }
+
+    private void write(Path file, RecordWriter recordWriter) {
+        Path tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                output.writeInt(RECORD_VERSION);
+                recordWriter.write(output);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write snapshot record " + file, e);
+            delete(tempFile);
+        }
+    }
+
+    private Path fileFor(String host, BuildReference buildReference, String suffix) {
+        Path root = directory.get().normalize();
+        Path jobDirectory = root
+            .resolve(directoryName(host.replaceFirst("^[A-Za-z]+://", "")))
+            .resolve(directoryName(buildReference.jobPath))
+            .normalize();
+        Path file = jobDirectory.resolve(buildReference.number + suffix).normalize();
+        if (!jobDirectory.startsWith(root) || !jobDirectory.equals(file.getParent())) {
+            throw new IllegalArgumentException(
+                "Not a snapshot record of a build: " + host + buildReference.jobPath + buildReference.number);
+        }
+        return file;
+    }
+
+    private static String directoryName(String path) {
+        return path.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private Build readBuildRecord(DataInputStream input, BuildReference buildReference) throws IOException {
+        Duration duration = new Duration(input.readLong());
+        DateTime startedAt = new DateTime(input.readLong());
+        Optional<String> startedByUser = Optional.ofNullable(readString(input));
+
+        int numberOfUpstreamBuilds = input.readInt();
+        List<BuildReference> upstreamBuildReferences = new ArrayList<>(numberOfUpstreamBuilds);
+        for (int i = 0; i < numberOfUpstreamBuilds; i++) {
+            upstreamBuildReferences.add(new BuildReference(readString(input), readString(input)));
+        }
+
+        int numberOfScmChanges = input.readInt();
+        List<ScmChange> scmChanges = new ArrayList<>(numberOfScmChanges);
+        for (int i = 0; i < numberOfScmChanges; i++) {
+            scmChanges.add(new ScmChange(readString(input), readString(input), readString(input)));
+        }
+
+        return new Build(buildReference, duration, startedAt, startedByUser, upstreamBuildReferences, emptyList(),
+            scmChanges, false);
+    }
+
+    private void writeBuildRecord(DataOutputStream output, Build build) throws IOException {
+        output.writeLong(build.duration.getMillis());
+        output.writeLong(build.startedAt.getMillis());
+        writeString(output, build.startedByUser.orElse(null));
+
+        output.writeInt(build.upstreamBuildReferences.size());
+        for (BuildReference upstreamBuildReference : build.upstreamBuildReferences) {
+            writeString(output, upstreamBuildReference.number);
+            writeString(output, upstreamBuildReference.jobPath);
+        }
+
+        output.writeInt(build.scmChanges.size());
+        for (ScmChange scmChange : build.scmChanges) {
+            writeString(output, scmChange.commitId);
+            writeString(output, scmChange.user);
+            writeString(output, scmChange.comment);
+        }
+    }
+
+    private TestReport readTestReportRecord(DataInputStream input) throws IOException {
+        String buildNumber = readString(input);
+
+        int numberOfLines = input.readInt();
+        List<TestReportLine> testReportLines = new ArrayList<>(numberOfLines);
+        for (int i = 0; i < numberOfLines; i++) {
+            testReportLines.add(new TestReportLine(
+                new Feature(readString(input), readString(input)),
+                readString(input),
+                readString(input),
+                readString(input),
+                readString(input)
+            ));
+        }
+
+        return new TestReport(buildNumber, testReportLines);
+    }
+
+    private void writeTestReportRecord(DataOutputStream output, TestReport testReport) throws IOException {
+        writeString(output, testReport.buildNumber);
+
+        output.writeInt(testReport.getTestReportLines().size());
+        for (TestReportLine testReportLine : testReport.getTestReportLines()) {
+            writeString(output, testReportLine.getFeature().getName());
+            writeString(output, testReportLine.getFeature().getLink());
+            writeString(output, testReportLine.getFailedSteps());
+            writeString(output, testReportLine.getSkippedSteps());
+            writeString(output, testReportLine.getTotalSteps());
+            writeString(output, testReportLine.getStatus());
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        if (string == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete snapshot record " + file, e);
+            return false;
+        }
+    }
+
+    private interface RecordReader<T> {
+        T read(DataInputStream input) throws IOException;
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,57 @@
+package kreyling.cragg;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Promise;
+import ratpack.stream.Streams;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Hands items from any number of producers to a single consumer, in the order they were offered. {@link #next()}
+ * waits while the queue is empty and yields null once it is closed and drained, which ends a stream created with
+ * {@link Streams#flatYield}.
+ */
+class StreamQueue<T> {
+    private final Queue<T> items = new ArrayDeque<>();
+    private Downstream<? super T> waiting;
+    private boolean closed;
+
+    void offer(T item) {
+        Downstream<? super T> downstream;
+        synchronized (this) {
+            if (closed) return;
+            if (waiting == null) {
+                items.add(item);
+                return;
+            }
+            downstream = waiting;
+            waiting = null;
+        }
+        downstream.success(item);
+    }
+
+    void close() {
+        Downstream<? super T> downstream;
+        synchronized (this) {
+            closed = true;
+            downstream = waiting;
+            waiting = null;
+        }
+        if (downstream != null) downstream.success(null);
+    }
+
+    Promise<T> next() {
+        return Promise.async(downstream -> {
+            T item;
+            synchronized (this) {
+                item = items.poll();
+                if (item == null && !closed) {
+                    waiting = downstream;
+                    return;
+                }
+            }
+            downstream.success(item);
+        });
+    }
+}
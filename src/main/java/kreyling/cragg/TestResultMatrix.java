@@ -0,0 +1,169 @@
+package kreyling.cragg;
+
+import static org.apache.commons.lang3.StringUtils.isNumeric;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+import ratpack.func.Pair;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The test results of all builds, one row per feature and one column per build. Features are sorted by name and
+ * builds by their number, once. The results are kept per cell in primitive arrays, row by row, so rendering walks
+ * the matrix without creating objects per cell.
+ */
+class TestResultMatrix {
+    private static final byte NO_RESULT = 0;
+
+    private final List<Pair<Build, TestReport>> columns;
+    private final List<Feature> features;
+    private final boolean[] systemFailures;
+
+    // Index 0 is NO_RESULT
+    private final List<String> statuses = new ArrayList<>();
+    private final List<String> statusCssClasses = new ArrayList<>();
+
+    private final byte[] statusIds;
+    private final int[] failedSteps;
+    private final int[] skippedSteps;
+    private final int[] totalSteps;
+    private final String[] featureLinks;
+
+    private TestResultMatrix(List<Pair<Build, TestReport>> columns, List<Feature> features) {
+        this.columns = columns;
+        this.features = features;
+        this.systemFailures = new boolean[columns.size()];
+
+        int numberOfCells = features.size() * columns.size();
+        this.statusIds = new byte[numberOfCells];
+        this.failedSteps = new int[numberOfCells];
+        this.skippedSteps = new int[numberOfCells];
+        this.totalSteps = new int[numberOfCells];
+        this.featureLinks = new String[numberOfCells];
+
+        statuses.add("");
+        statusCssClasses.add("");
+    }
+
+    static TestResultMatrix of(List<? extends Pair<Build, TestReport>> pairs) {
+        List<Pair<Build, TestReport>> columns = new ArrayList<>(pairs);
+        columns.sort(Comparator.comparing(pair -> pair.getRight().buildNumber, TestResultMatrix::compareBuildNumbers));
+
+        Map<Feature, Integer> rowsByFeature = new HashMap<>();
+        for (Pair<Build, TestReport> column : columns) {
+            for (TestReportLine testReportLine : column.getRight().getTestReportLines()) {
+                rowsByFeature.putIfAbsent(testReportLine.getFeature(), -1);
+            }
+        }
+
+        List<Feature> features = new ArrayList<>(rowsByFeature.keySet());
+        features.sort(Comparator.naturalOrder());
+        for (int row = 0; row < features.size(); row++) {
+            rowsByFeature.put(features.get(row), row);
+        }
+
+        TestResultMatrix testResultMatrix = new TestResultMatrix(columns, features);
+        for (int column = 0; column < columns.size(); column++) {
+            TestReport testReport = columns.get(column).getRight();
+            testResultMatrix.systemFailures[column] = testReport.isSystemFailure();
+
+            for (TestReportLine testReportLine : testReport.getTestReportLines()) {
+                testResultMatrix.set(rowsByFeature.get(testReportLine.getFeature()), column, testReportLine);
+            }
+        }
+        return testResultMatrix;
+    }
+
+    int getNumberOfFeatures() {
+        return features.size();
+    }
+
+    int getNumberOfBuilds() {
+        return columns.size();
+    }
+
+    Feature getFeature(int row) {
+        return features.get(row);
+    }
+
+    List<Pair<Build, TestReport>> getColumns() {
+        return columns;
+    }
+
+    TestReport getTestReport(int column) {
+        return columns.get(column).getRight();
+    }
+
+    boolean isSystemFailure(int column) {
+        return systemFailures[column];
+    }
+
+    boolean hasResult(int row, int column) {
+        return statusIds[index(row, column)] != NO_RESULT;
+    }
+
+    String getStatus(int row, int column) {
+        return statuses.get(statusIds[index(row, column)]);
+    }
+
+    String getStatusCssClass(int row, int column) {
+        return statusCssClasses.get(statusIds[index(row, column)]);
+    }
+
+    int getFailedSteps(int row, int column) {
+        return failedSteps[index(row, column)];
+    }
+
+    int getSkippedSteps(int row, int column) {
+        return skippedSteps[index(row, column)];
+    }
+
+    int getTotalSteps(int row, int column) {
+        return totalSteps[index(row, column)];
+    }
+
+    String getFeatureLink(int row, int column) {
+        return featureLinks[index(row, column)];
+    }
+
+    private void set(int row, int column, TestReportLine testReportLine) {
+        int index = index(row, column);
+
+        // Like TestReport.getTestReportLineByFeature, the first line of a feature wins
+        if (statusIds[index] != NO_RESULT) return;
+
+        statusIds[index] = statusId(testReportLine.getStatus());
+        failedSteps[index] = testReportLine.getFailedStepsInt();
+        skippedSteps[index] = testReportLine.getSkippedStepsInt();
+        totalSteps[index] = testReportLine.getTotalStepsInt();
+        featureLinks[index] = testReportLine.getFeature().getLink();
+    }
+
+    private byte statusId(String status) {
+        int statusId = statuses.indexOf(status);
+        if (statusId < 0) {
+            statusId = statuses.size();
+            statuses.add(status);
+            statusCssClasses.add(status.toLowerCase());
+        }
+        return (byte) statusId;
+    }
+
+    private int index(int row, int column) {
+        return row * columns.size() + column;
+    }
+
+    static int compareBuildNumbers(String buildNumber, String otherBuildNumber) {
+        if (isNumeric(buildNumber) && isNumeric(otherBuildNumber)) {
+            return Long.compare(Long.parseLong(buildNumber), Long.parseLong(otherBuildNumber));
+        }
+        return String.valueOf(buildNumber).compareTo(String.valueOf(otherBuildNumber));
+    }
+}
@@ -0,0 +1,158 @@
+package kreyling.cragg;
+
+import static kreyling.cragg.TestResultMatrix.compareBuildNumbers;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import lombok.Value;
+import ratpack.util.MultiValueMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * The test results as newline delimited JSON, one line per feature with its result in each build:
+ * <pre>
+ * {"feature":"Anmeldung","results":[{"build":"1494","status":"Failed","failedSteps":2,"skippedSteps":3,"totalSteps":20,"systemFailure":false}]}
+ * </pre>
+ * Builds without a result for the feature are left out. Lines are written one at a time, when the response asks for
+ * them.
+ */
+class TestResultsNdjson {
+    static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Query parameters: {@code from} and {@code to} limit the builds by number, both inclusive. {@code feature} is a
+     * prefix of the feature names, {@code failing=true} keeps only features failed in one of the builds.
+     * {@code page} (from 1) and {@code limit} page through the features.
+     */
+    @Value
+    static class Query {
+        public static final int DEFAULT_LIMIT = 100;
+
+        Optional<String> fromBuild;
+        Optional<String> toBuild;
+        Optional<String> featurePrefix;
+        boolean onlyFailing;
+        int page;
+        int limit;
+
+        static Query of(MultiValueMap<String, String> queryParams) {
+            return new Query(
+                parameter(queryParams, "from"),
+                parameter(queryParams, "to"),
+                parameter(queryParams, "feature"),
+                Boolean.parseBoolean(queryParams.get("failing")),
+                Math.max(1, intParameter(queryParams, "page", 1)),
+                Math.max(1, intParameter(queryParams, "limit", DEFAULT_LIMIT))
+            );
+        }
+
+        boolean includesBuild(String buildNumber) {
+            return fromBuild.map(from -> compareBuildNumbers(buildNumber, from) >= 0).orElse(true)
+                && toBuild.map(to -> compareBuildNumbers(buildNumber, to) <= 0).orElse(true);
+        }
+
+        private static Optional<String> parameter(MultiValueMap<String, String> queryParams, String name) {
+            String value = queryParams.get(name);
+            return isBlank(value) ? Optional.empty() : Optional.of(value);
+        }
+
+        private static int intParameter(MultiValueMap<String, String> queryParams, String name, int defaultValue) {
+            try {
+                return parameter(queryParams, name).map(Integer::parseInt).orElse(defaultValue);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    static Iterable<CharSequence> lines(TestResultMatrix testResultMatrix, Query query) {
+        List<Integer> columns = new ArrayList<>();
+        for (int column = 0; column < testResultMatrix.getNumberOfBuilds(); column++) {
+            if (query.includesBuild(testResultMatrix.getTestReport(column).buildNumber)) columns.add(column);
+        }
+
+        return () -> new Iterator<CharSequence>() {
+            int row = -1;
+            int skipped = 0;
+            int written = 0;
+
+            {
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return row < testResultMatrix.getNumberOfFeatures() && written < query.limit;
+            }
+
+            @Override
+            public CharSequence next() {
+                if (!hasNext()) throw new NoSuchElementException();
+
+                String line = writeLine(testResultMatrix, row, columns);
+                written++;
+                advance();
+                return line;
+            }
+
+            // Moves to the next row of the requested page
+            private void advance() {
+                int offset = (query.page - 1) * query.limit;
+                do {
+                    row++;
+                    if (row >= testResultMatrix.getNumberOfFeatures()) return;
+                    if (matches(testResultMatrix, row, columns, query) && skipped++ >= offset) return;
+                } while (true);
+            }
+        };
+    }
+
+    private static boolean matches(TestResultMatrix testResultMatrix, int row, List<Integer> columns, Query query) {
+        if (query.featurePrefix.isPresent() && !testResultMatrix.getFeature(row).getName().startsWith(query.featurePrefix.get())) {
+            return false;
+        }
+        if (!query.onlyFailing) return true;
+
+        for (int column : columns) {
+            if (testResultMatrix.getStatus(row, column).equals("Failed")) return true;
+        }
+        return false;
+    }
+
+    private static String writeLine(TestResultMatrix testResultMatrix, int row, List<Integer> columns) {
+        StringWriter line = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(line)) {
+            generator.writeStartObject();
+            generator.writeStringField("feature", testResultMatrix.getFeature(row).getName());
+            generator.writeArrayFieldStart("results");
+            for (int column : columns) {
+                if (!testResultMatrix.hasResult(row, column)) continue;
+
+                generator.writeStartObject();
+                generator.writeStringField("build", testResultMatrix.getTestReport(column).buildNumber);
+                generator.writeStringField("status", testResultMatrix.getStatus(row, column));
+                generator.writeNumberField("failedSteps", testResultMatrix.getFailedSteps(row, column));
+                generator.writeNumberField("skippedSteps", testResultMatrix.getSkippedSteps(row, column));
+                generator.writeNumberField("totalSteps", testResultMatrix.getTotalSteps(row, column));
+                generator.writeBooleanField("systemFailure", testResultMatrix.isSystemFailure(column));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return line.append('\n').toString();
+    }
+}
@@ -0,0 +1,90 @@
+package kreyling.cragg;
+
+import static java.util.stream.Collectors.toList;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import ratpack.exec.Promise;
+import ratpack.exec.util.ParallelBatch;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The upstream builds of all builds on a page. They are resolved level by level, up to a maximum depth, each level in
+ * one batch. Lookups are memoized from the moment they start, so a build reached on several paths, e.g. in diamond
+ * shaped pipelines, or from several builds of the page at the same time, is fetched and parsed once. The resolved
+ * builds are then linked into {@link Build#upstreamBuilds}. References back to a build on the current path, i.e.
+ * cycles, are dropped.
+ */
+class UpstreamBuildGraph {
+    private final Function<BuildReference, Promise<Build>> fetchBuild;
+    private final int maxDepth;
+
+    private final Map<BuildReference, Promise<Build>> lookups = new ConcurrentHashMap<>();
+    private final Map<BuildReference, Build> builds = new ConcurrentHashMap<>();
+
+    UpstreamBuildGraph(Function<BuildReference, Promise<Build>> fetchBuild, int maxDepth) {
+        this.fetchBuild = fetchBuild;
+        this.maxDepth = maxDepth;
+    }
+
+    Promise<Build> resolve(Build build) {
+        lookups.putIfAbsent(build.buildReference, Promise.value(build));
+        builds.put(build.buildReference, build);
+
+        Set<BuildReference> visited = new HashSet<>();
+        visited.add(build.buildReference);
+        List<BuildReference> firstLevel = build.upstreamBuildReferences.stream()
+            .filter(visited::add)
+            .collect(toList());
+
+        return resolveLevel(firstLevel, visited, 1)
+            .map(depth -> link(build.buildReference, new HashSet<>(), 0));
+    }
+
+    int getNumberOfBuilds() {
+        return builds.size();
+    }
+
+    private Promise<Integer> resolveLevel(List<BuildReference> level, Set<BuildReference> visited, int depth) {
+        if (depth > maxDepth || level.isEmpty()) return Promise.value(depth);
+
+        return ParallelBatch.of(level.stream().map(this::lookup).collect(toList()))
+            .yield()
+            .flatMap(fetchedBuilds -> {
+                fetchedBuilds.forEach(fetchedBuild -> builds.put(fetchedBuild.buildReference, fetchedBuild));
+
+                List<BuildReference> nextLevel = level.stream()
+                    .map(builds::get)
+                    .flatMap(build -> build.upstreamBuildReferences.stream())
+                    .filter(visited::add)
+                    .collect(toList());
+                return resolveLevel(nextLevel, visited, depth + 1);
+            });
+    }
+
+    private Promise<Build> lookup(BuildReference buildReference) {
+        return lookups.computeIfAbsent(buildReference, key -> fetchBuild.apply(key).cache());
+    }
+
+    private Build link(BuildReference buildReference, Set<BuildReference> path, int depth) {
+        Build build = builds.get(buildReference);
+        if (depth >= maxDepth) return build;
+
+        path.add(buildReference);
+        List<Build> upstreamBuilds = build.upstreamBuildReferences.stream()
+            .filter(builds::containsKey)
+            .filter(upstreamBuildReference -> !path.contains(upstreamBuildReference))
+            .distinct()
+            .map(upstreamBuildReference -> link(upstreamBuildReference, path, depth + 1))
+            .collect(toList());
+        path.remove(buildReference);
+
+        return build.withUpstreamBuilds(upstreamBuilds);
+    }
+}
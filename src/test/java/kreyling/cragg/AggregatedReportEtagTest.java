@@ -0,0 +1,67 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import kreyling.cragg.Main.AggregatedReport;
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+import ratpack.func.Pair;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class AggregatedReportEtagTest {
+
+    @Test
+    public void sameBuildsAndResultsGiveTheSameEtag() {
+        assertThat(etag(pair("1", false, "Passed")), is(etag(pair("1", false, "Passed"))));
+    }
+
+    @Test
+    public void changedResultChangesTheEtag() {
+        assertThat(etag(pair("1", false, "Passed")), is(not(etag(pair("1", false, "Failed")))));
+    }
+
+    @Test
+    public void finishedBuildChangesTheEtag() {
+        assertThat(etag(pair("1", true, "Passed")), is(not(etag(pair("1", false, "Passed")))));
+    }
+
+    @Test
+    public void newBuildChangesTheEtag() {
+        assertThat(etag(pair("1", false, "Passed")), is(not(etag(pair("1", false, "Passed"), pair("2", false, "Passed")))));
+    }
+
+    @Test
+    public void pendingBuildChangesTheEtag() {
+        List<Pair<Build, TestReport>> pairs = singletonList(pair("1", false, "Passed"));
+        AggregatedReport withPendingBuild = new AggregatedReport(pairs, TestResultMatrix.of(pairs),
+            BuildWindow.Selection.NONE, singletonList(new BuildReference("2", "job/some-project/")));
+
+        assertThat(withPendingBuild.getEtag(), is(not(etag(pair("1", false, "Passed")))));
+    }
+
+    @SafeVarargs
+    private final String etag(Pair<Build, TestReport>... pairs) {
+        List<Pair<Build, TestReport>> pairList = asList(pairs);
+        return new AggregatedReport(pairList, TestResultMatrix.of(pairList)).getEtag();
+    }
+
+    private Pair<Build, TestReport> pair(String buildNumber, boolean building, String status) {
+        Build build = new Build(new BuildReference(buildNumber, "job/some-project/"), null, null, Optional.empty(),
+            emptyList(), emptyList(), emptyList(), building);
+        TestReport testReport = new TestReport(buildNumber, singletonList(
+            new TestReportLine(new Feature("Anmeldung", "anmeldung.html"), "0", "0", "12", status)));
+        return Pair.of(build, testReport);
+    }
+}
@@ -0,0 +1,114 @@
+package kreyling.cragg;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.NullBuild;
+import kreyling.cragg.Main.TestReport;
+import ratpack.test.exec.ExecHarness;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Optional;
+
+public class BuildCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    static final String HOST = "https://jenkins.example.com/";
+
+    BuildCache buildCache = new BuildCache(2, SnapshotStore.disabled());
+
+    @Test
+    public void finishedBuildIsCached() throws Exception {
+        Build build = build("1494", false);
+
+        put(build);
+
+        assertThat(get(HOST, "1494"), is(Optional.of(build)));
+    }
+
+    @Test
+    public void leastRecentlyUsedBuildIsEvicted() throws Exception {
+        put(build("1493", false));
+        put(build("1494", false));
+        get(HOST, "1493");
+
+        put(build("1495", false));
+
+        assertThat(get(HOST, "1494"), is(Optional.empty()));
+        assertThat(get(HOST, "1493").isPresent(), is(true));
+        assertThat(get(HOST, "1495").isPresent(), is(true));
+    }
+
+    @Test
+    public void runningBuildIsNotCached() throws Exception {
+        put(build("1495", true));
+
+        assertThat(get(HOST, "1495"), is(Optional.empty()));
+    }
+
+    @Test
+    public void buildThatCouldNotBeQueriedIsNotCached() throws Exception {
+        put(new NullBuild(new BuildReference("1495", "job/some-project/")));
+
+        assertThat(get(HOST, "1495"), is(Optional.empty()));
+    }
+
+    @Test
+    public void testReportOfRunningBuildIsNotCached() throws Exception {
+        Build build = build("1495", true);
+        ExecHarness.yieldSingle(execution ->
+            buildCache.putTestReport(HOST, build, new TestReport("1495", emptyList()))
+        ).getValueOrThrow();
+
+        assertThat(ExecHarness.yieldSingle(execution -> buildCache.getTestReport(HOST, build.buildReference))
+            .getValueOrThrow(), is(Optional.empty()));
+    }
+
+    @Test
+    public void buildsAreKeptPerHost() throws Exception {
+        put(build("1494", false));
+
+        assertThat(get("https://other-jenkins.example.com/", "1494"), is(Optional.empty()));
+    }
+
+    @Test
+    public void missesFallBackToTheSnapshotStore() throws Exception {
+        SnapshotStore snapshotStore = SnapshotStore.of(temporaryFolder.getRoot().getPath(), 90);
+        Build build = build("1494", false);
+        TestReport testReport = new TestReport("1494", emptyList());
+        ExecHarness.yieldSingle(execution -> new BuildCache(2, snapshotStore).putBuild(HOST, build)
+            .flatMap(it -> new BuildCache(2, snapshotStore).putTestReport(HOST, build, testReport))
+        ).getValueOrThrow();
+
+        // A new cache, as after a restart
+        buildCache = new BuildCache(2, snapshotStore);
+
+        assertThat(get(HOST, "1494"), is(Optional.of(build)));
+        assertThat(ExecHarness.yieldSingle(execution -> buildCache.getTestReport(HOST, build.buildReference))
+            .getValueOrThrow(), is(Optional.of(testReport)));
+    }
+
+    private void put(Build build) throws Exception {
+        ExecHarness.yieldSingle(execution -> buildCache.putBuild(HOST, build)).getValueOrThrow();
+    }
+
+    private Optional<Build> get(String host, String buildNumber) throws Exception {
+        return ExecHarness.yieldSingle(execution ->
+            buildCache.getBuild(host, new BuildReference(buildNumber, "job/some-project/"))
+        ).getValueOrThrow();
+    }
+
+    private static Build build(String buildNumber, boolean building) {
+        return new Build(new BuildReference(buildNumber, "job/some-project/"), new Duration(2715217),
+            new DateTime(1484297587490L), Optional.empty(), emptyList(), emptyList(), emptyList(), building);
+    }
+}
@@ -0,0 +1,225 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.Main.AggregatedReport;
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.JenkinsRequestProcessor;
+import kreyling.cragg.Main.NullBuild;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+import ratpack.func.Pair;
+import ratpack.server.RatpackServer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+public class BuildNotificationTest {
+    JenkinsRequestProcessor jenkinsRequestProcessor =
+        new JenkinsRequestProcessor(null, "job/some-project/", Optional.empty(), null, null);
+
+    FakeJenkins fakeJenkins;
+    RatpackServer server;
+
+    @After
+    public void stopServers() throws Exception {
+        if (server != null) server.stop();
+        if (fakeJenkins != null) fakeJenkins.close();
+    }
+
+    @Test
+    public void completedBuildIsFinished() {
+        BuildNotification notification = readNotification("completed.json");
+
+        assertThat(notification.getBuildReference(), is(new BuildReference("1495", "job/some-project/")));
+        assertThat(notification.isFinished(), is(true));
+    }
+
+    @Test
+    public void startedBuildIsNotFinished() {
+        assertThat(readNotification("started.json").isFinished(), is(false));
+    }
+
+    @Test
+    public void finalizedBuildIsFinished() {
+        assertThat(readNotification("finalized.json").isFinished(), is(true));
+    }
+
+    @Test
+    public void jobPathIncludesFolders() {
+        BuildNotification notification = readNotification("folder.json");
+
+        assertThat(notification.getBuildReference(), is(new BuildReference("87", "job/team/job/e2e-tests/")));
+    }
+
+    @Test
+    public void notificationsAreMatchedByHostAndJob() {
+        BuildNotification notification = readNotification("completed.json");
+
+        assertThat(notification.isOf(JobConfig.of("https://jenkins.example.com/", "job/some-project/", Optional.empty())),
+            is(true));
+        assertThat(notification.isOf(
+            JobConfig.of("https://other-jenkins.example.com/", "job/some-project/", Optional.empty())), is(false));
+        assertThat(notification.isOf(JobConfig.of("https://jenkins.example.com/", "job/other-project/", Optional.empty())),
+            is(false));
+    }
+
+    @Test
+    public void invalidPayloadsAreRejected() {
+        assertThat(BuildNotification.parse("<html/>"), is(Optional.empty()));
+        assertThat(BuildNotification.parse("{\"name\":\"some-project\"}"), is(Optional.empty()));
+        assertThat(BuildNotification.parse("{\"url\":\"job/some-project/\",\"build\":{\"number\":"),
+            is(Optional.empty()));
+    }
+
+    @Test
+    public void buildNumberMustBeANumber() {
+        assertThat(BuildNotification.parse(
+            "{\"url\":\"job/some-project/\",\"build\":{\"number\":\"../../x\",\"phase\":\"COMPLETED\"}}"),
+            is(Optional.empty()));
+        assertThat(BuildNotification.parse(
+            "{\"url\":\"job/some-project/\",\"build\":{\"number\":1.5,\"phase\":\"COMPLETED\"}}"),
+            is(Optional.empty()));
+    }
+
+    @Test
+    public void notificationsArePostedToTheServer() throws Exception {
+        fakeJenkins = new FakeJenkins(5, 3, 0, 0);
+        startServer(3600);
+
+        assertThat(postNotification("<html/>"), is(400));
+        assertThat(postNotification(readPayload("started.json")), is(204));
+        // Neither host nor job of the recorded payload are configured
+        assertThat(postNotification(readPayload("completed.json")), is(204));
+
+        // The first poll starts right away, the notified build is fetched once it is done
+        long requestsOfPoll = awaitRequestsSettled();
+        assertThat(requestsOfPoll, greaterThan(0L));
+        assertThat(postNotification(forFakeJenkins(readPayload("completed.json"))), is(202));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (fakeJenkins.getRequests() == requestsOfPoll && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(fakeJenkins.getRequests(), greaterThan(requestsOfPoll));
+    }
+
+    @Test
+    public void notificationsAreIgnoredWithoutPolling() throws Exception {
+        fakeJenkins = new FakeJenkins(5, 3, 0, 0);
+        startServer(0);
+
+        assertThat(postNotification(forFakeJenkins(readPayload("completed.json"))), is(204));
+        Thread.sleep(200);
+        assertThat(fakeJenkins.getRequests(), is(0L));
+    }
+
+    @Test
+    public void replayedNotificationsAreMergedIntoTheReport() {
+        AggregatedReport aggregatedReport = jenkinsRequestProcessor.aggregateTestReports(asList(
+            pair("1493", "Passed"),
+            pair("1494", "Failed")
+        ));
+
+        for (String payload : asList("started.json", "completed.json", "finalized.json")) {
+            BuildNotification notification = readNotification(payload);
+            if (!notification.isFinished()) continue;
+
+            aggregatedReport = jenkinsRequestProcessor.mergeBuild(aggregatedReport,
+                pair(notification.getBuildReference().number, "Passed"));
+        }
+
+        assertThat(buildNumbers(aggregatedReport), contains("1493", "1494", "1495"));
+    }
+
+    @Test
+    public void buildWithoutTestReportIsRemoved() {
+        AggregatedReport aggregatedReport = jenkinsRequestProcessor.aggregateTestReports(asList(
+            pair("1494", "Failed"),
+            pair("1495", "Passed")
+        ));
+
+        aggregatedReport = jenkinsRequestProcessor.mergeBuild(aggregatedReport,
+            Pair.of(new NullBuild(new BuildReference("1495", "job/some-project/")), null));
+
+        assertThat(buildNumbers(aggregatedReport), contains("1494"));
+    }
+
+    private List<String> buildNumbers(AggregatedReport aggregatedReport) {
+        return aggregatedReport.getTestResultMatrix().getColumns().stream()
+            .map(column -> column.getRight().buildNumber)
+            .collect(toList());
+    }
+
+    private Pair<Build, TestReport> pair(String buildNumber, String status) {
+        return Pair.of(
+            new NullBuild(new BuildReference(buildNumber, "job/some-project/")),
+            new TestReport(buildNumber, asList(new TestReportLine(
+                new Feature("Anmeldung", "Anmeldung.html"), status.equals("Failed") ? "1" : "0", "0", "10", status)))
+        );
+    }
+
+    private void startServer(int pollIntervalSeconds) throws Exception {
+        server = Main.createServer(singletonList(fakeJenkins.getJobConfig()), SnapshotStore.disabled(),
+            new JenkinsClient(JenkinsClient.createHttpClient()), pollIntervalSeconds, 0);
+        server.start();
+    }
+
+    private long awaitRequestsSettled() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        long requests = -1;
+        while ((requests == 0 || requests != fakeJenkins.getRequests()) && System.currentTimeMillis() < deadline) {
+            requests = fakeJenkins.getRequests();
+            Thread.sleep(200);
+        }
+        return requests;
+    }
+
+    private String forFakeJenkins(String payload) {
+        return payload
+            .replace("https://jenkins.example.com/", fakeJenkins.getUrl())
+            .replace("job/some-project/", FakeJenkins.JOB_PATH);
+    }
+
+    private int postNotification(String payload) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+            new URL("http", "localhost", server.getBindPort(), "/notify").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        try (OutputStream body = connection.getOutputStream()) {
+            body.write(payload.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection.getResponseCode();
+    }
+
+    private BuildNotification readNotification(String filename) {
+        return BuildNotification.parse(readPayload(filename)).get();
+    }
+
+    private String readPayload(String filename) {
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(getClass().getResource("/notifications/" + filename).toURI()));
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
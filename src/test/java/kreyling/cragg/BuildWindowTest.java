@@ -0,0 +1,86 @@
+package kreyling.cragg;
+
+import static java.util.Optional.empty;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.BuildWindow.Selection;
+import kreyling.cragg.Main.BuildReference;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+public class BuildWindowTest {
+    // Newest first, as listed by Jenkins
+    List<BuildReference> buildReferences = IntStream.rangeClosed(1, 10)
+        .mapToObj(number -> new BuildReference(String.valueOf(11 - number), "job/Test/"))
+        .collect(toList());
+
+    @Test
+    public void unboundedWindowSelectsAllBuilds() {
+        Selection selection = BuildWindow.ALL.select(buildReferences);
+
+        assertThat(selection.getBuildReferences(), is(buildReferences));
+        assertThat(selection.getOlderQuery(), is(empty()));
+        assertThat(selection.getNewerQuery(), is(empty()));
+    }
+
+    @Test
+    public void lastBuildsLinkToOlderBuilds() {
+        Selection selection = new BuildWindow(Optional.of(3), empty()).select(buildReferences);
+
+        assertThat(numbers(selection), contains("8", "9", "10"));
+        assertThat(selection.getOlderQuery(), is(Optional.of("?last=3&before=8")));
+        assertThat(selection.getNewerQuery(), is(empty()));
+    }
+
+    @Test
+    public void buildsBeforeLinkToOlderAndNewerBuilds() {
+        Selection selection = new BuildWindow(Optional.of(3), Optional.of("5")).select(buildReferences);
+
+        assertThat(numbers(selection), contains("2", "3", "4"));
+        assertThat(selection.getOlderQuery(), is(Optional.of("?last=3&before=2")));
+        assertThat(selection.getNewerQuery(), is(Optional.of("?last=3&before=8")));
+    }
+
+    @Test
+    public void newerLinkOfTheSecondWindowShowsTheLastBuilds() {
+        Selection selection = new BuildWindow(Optional.of(3), Optional.of("8")).select(buildReferences);
+
+        assertThat(numbers(selection), contains("5", "6", "7"));
+        assertThat(selection.getNewerQuery(), is(Optional.of("?last=3")));
+    }
+
+    @Test
+    public void oldestWindowHasNoOlderLink() {
+        Selection selection = new BuildWindow(Optional.of(3), Optional.of("3")).select(buildReferences);
+
+        assertThat(numbers(selection), contains("1", "2"));
+        assertThat(selection.getOlderQuery(), is(empty()));
+        assertThat(selection.getNewerQuery(), is(Optional.of("?last=3&before=6")));
+    }
+
+    @Test
+    public void buildsBeforeWithoutLimitSelectsAllOlderBuilds() {
+        Selection selection = new BuildWindow(empty(), Optional.of("4")).select(buildReferences);
+
+        assertThat(numbers(selection), contains("1", "2", "3"));
+        assertThat(selection.getOlderQuery(), is(empty()));
+        assertThat(selection.getNewerQuery(), is(Optional.of("?last=3&before=7")));
+    }
+
+    @Test
+    public void tooBigWindowSizeIsIgnored() {
+        assertThat(BuildWindow.of("99999999999", null).getLast(), is(empty()));
+        assertThat(BuildWindow.of("30", "1500"), is(new BuildWindow(Optional.of(30), Optional.of("1500"))));
+    }
+
+    private static List<String> numbers(Selection selection) {
+        return selection.getBuildReferences().stream().map(BuildReference::getNumber).collect(toList());
+    }
+}
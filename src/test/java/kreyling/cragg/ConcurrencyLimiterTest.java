@@ -0,0 +1,114 @@
+package kreyling.cragg;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import ratpack.exec.Downstream;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.util.ParallelBatch;
+import ratpack.test.exec.ExecHarness;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+public class ConcurrencyLimiterTest {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 4, 10000);
+
+    @Test
+    public void successfulCallsRaiseTheLimit() throws Exception {
+        call(Promise.error(new IOException()));
+        assertThat(concurrencyLimiter.getLimit(), is(2));
+
+        // 2 + 1/2 + 1/2.5 = 2.9
+        call(Promise.value("1"));
+        call(Promise.value("2"));
+        assertThat(concurrencyLimiter.getLimit(), is(2));
+
+        call(Promise.value("3"));
+        assertThat(concurrencyLimiter.getLimit(), is(3));
+    }
+
+    @Test
+    public void limitStaysAtTheMaximum() throws Exception {
+        call(Promise.value("1"));
+
+        assertThat(concurrencyLimiter.getLimit(), is(4));
+    }
+
+    @Test
+    public void failedCallsHalveTheLimit() throws Exception {
+        call(Promise.error(new IOException()));
+        assertThat(concurrencyLimiter.getLimit(), is(2));
+
+        call(Promise.error(new IOException()));
+        assertThat(concurrencyLimiter.getLimit(), is(1));
+
+        call(Promise.error(new IOException()));
+        assertThat(concurrencyLimiter.getLimit(), is(1));
+    }
+
+    @Test
+    public void overloadedCallsHalveTheLimit() throws Exception {
+        ExecHarness.yieldSingle(execution -> concurrencyLimiter.limit(Promise.value(503), status -> status == 503));
+
+        assertThat(concurrencyLimiter.getLimit(), is(2));
+    }
+
+    @Test
+    public void callsFailingTogetherHalveTheLimitOnce() throws Exception {
+        ExecHarness.yieldSingle(execution -> ParallelBatch.of(
+            concurrencyLimiter.limit(delayedError(), result -> false),
+            concurrencyLimiter.limit(delayedError(), result -> false)
+        ).yieldAll());
+
+        assertThat(concurrencyLimiter.getLimit(), is(2));
+    }
+
+    @Test
+    public void callsAboveTheLimitAreQueuedUntilARelease() throws Exception {
+        concurrencyLimiter = new ConcurrencyLimiter(1, 1, 10000);
+        CompletableFuture<Downstream<? super String>> firstCall = new CompletableFuture<>();
+        CompletableFuture<String> firstResult = new CompletableFuture<>();
+        CompletableFuture<String> secondResult = new CompletableFuture<>();
+
+        try (ExecHarness harness = ExecHarness.harness()) {
+            harness.fork().start(execution -> concurrencyLimiter
+                .limit(Promise.<String>async(firstCall::complete), result -> false)
+                .then(firstResult::complete));
+            Downstream<? super String> firstDownstream = firstCall.get(5, SECONDS);
+
+            harness.fork().start(execution -> concurrencyLimiter
+                .limit(Promise.value("second"), result -> false)
+                .then(secondResult::complete));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (concurrencyLimiter.getQueued() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(concurrencyLimiter.getInFlight(), is(1));
+            assertThat(concurrencyLimiter.getQueued(), is(1));
+            assertThat(secondResult.isDone(), is(false));
+
+            firstDownstream.success("first");
+
+            assertThat(firstResult.get(5, SECONDS), is("first"));
+            assertThat(secondResult.get(5, SECONDS), is("second"));
+            assertThat(concurrencyLimiter.getInFlight(), is(0));
+            assertThat(concurrencyLimiter.getQueued(), is(0));
+        }
+    }
+
+    private void call(Promise<String> promise) throws Exception {
+        ExecHarness.yieldSingle(execution -> concurrencyLimiter.limit(promise, result -> false));
+    }
+
+    private static Promise<String> delayedError() {
+        return Promise.async(downstream -> Execution.current().getController().getExecutor()
+            .schedule(() -> downstream.error(new IOException()), 100, MILLISECONDS));
+    }
+}
@@ -0,0 +1,59 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import ratpack.exec.ExecResult;
+import ratpack.exec.Promise;
+import ratpack.test.exec.ExecHarness;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class DeadlineBatchTest {
+
+    @Test
+    public void allResultsBeforeTheDeadline() throws Exception {
+        List<Optional<ExecResult<String>>> results = ExecHarness.yieldSingle(execution ->
+            DeadlineBatch.yieldUntil(asList(Promise.value("1"), Promise.value("2")), 10000)
+        ).getValueOrThrow();
+
+        assertThat(results.size(), is(2));
+        assertThat(results.get(0).get().getValue(), is("1"));
+        assertThat(results.get(1).get().getValue(), is("2"));
+    }
+
+    @Test
+    public void promisesNotDoneByTheDeadlineAreEmpty() throws Exception {
+        List<Optional<ExecResult<String>>> results = ExecHarness.yieldSingle(execution ->
+            DeadlineBatch.yieldUntil(asList(Promise.value("1"), Promise.<String>async(downstream -> { })), 100)
+        ).getValueOrThrow();
+
+        assertThat(results.get(0).get().getValue(), is("1"));
+        assertThat(results.get(1).isPresent(), is(false));
+    }
+
+    @Test
+    public void errorsAreResults() throws Exception {
+        List<Optional<ExecResult<String>>> results = ExecHarness.yieldSingle(execution ->
+            DeadlineBatch.yieldUntil(asList(Promise.value("1"),
+                Promise.<String>error(new IllegalStateException("Jenkins is down"))), 0)
+        ).getValueOrThrow();
+
+        assertThat(results.get(0).get().getValue(), is("1"));
+        assertThat(results.get(1).get().getThrowable(), instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    public void noPromisesYieldAtOnce() throws Exception {
+        List<Optional<ExecResult<String>>> results = ExecHarness.yieldSingle(execution ->
+            DeadlineBatch.<String>yieldUntil(asList(), 0)
+        ).getValueOrThrow();
+
+        assertThat(results.isEmpty(), is(true));
+    }
+}
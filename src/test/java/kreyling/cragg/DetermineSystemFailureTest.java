@@ -1,9 +1,14 @@
 package kreyling.cragg;
 
+import static java.util.Collections.emptyList;
 import static kreyling.cragg.Main.TestReport.countDirectlySuccessionalFailures;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -20,4 +25,42 @@ public class DetermineSystemFailureTest {
         assertThat(directlySuccessionalFailures, is(2));
     }
 
+    @Test
+    public void testSystemFailureIsDeterminedInFeatureOrder() {
+        TestReport testReport = new TestReport("1", Arrays.asList(
+            line("a", "Failed"), line("c", "Passed"), line("b", "Failed"), line("d", "Passed"),
+            line("e", "Passed"), line("f", "Passed"), line("g", "Passed"), line("h", "Passed")
+        ));
+
+        assertThat(testReport.isSystemFailure(), is(true));
+    }
+
+    @Test
+    public void testScatteredFailuresAreNoSystemFailure() {
+        TestReport testReport = new TestReport("1", Arrays.asList(
+            line("a", "Failed"), line("b", "Passed"), line("c", "Failed"), line("d", "Passed"),
+            line("e", "Failed"), line("f", "Passed"), line("g", "Passed"), line("h", "Passed")
+        ));
+
+        assertThat(testReport.isSystemFailure(), is(false));
+    }
+
+    @Test
+    public void testEmptyReportIsNoSystemFailure() {
+        assertThat(new TestReport("1", emptyList()).isSystemFailure(), is(false));
+    }
+
+    @Test
+    public void testStepCountsAreParsedOnce() {
+        TestReportLine testReportLine = new TestReportLine(new Feature("a", "a.html"), "2", "", "20", "Failed");
+
+        assertThat(testReportLine.getFailedStepsInt(), is(2));
+        assertThat(testReportLine.getSkippedStepsInt(), is(0));
+        assertThat(testReportLine.getTotalStepsInt(), is(20));
+        assertThat(testReportLine.getFailedAndSkippedStepsInt(), is(2));
+    }
+
+    private TestReportLine line(String featureName, String status) {
+        return new TestReportLine(new Feature(featureName, featureName + ".html"), "0", "0", "1", status);
+    }
 }
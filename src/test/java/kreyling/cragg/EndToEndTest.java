@@ -0,0 +1,41 @@
+package kreyling.cragg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import kreyling.cragg.LoadTest.Report;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class EndToEndTest {
+    FakeJenkins fakeJenkins;
+
+    @After
+    public void stopFakeJenkins() {
+        if (fakeJenkins != null) fakeJenkins.close();
+    }
+
+    @Test
+    public void dashboardsAreServedFromTheFakeJenkins() throws Exception {
+        fakeJenkins = new FakeJenkins(10, 20, 0, 0);
+
+        Report report = LoadTest.run(fakeJenkins, 2, 10, 0, true);
+
+        assertThat(report.getFailures(), is(0));
+        assertThat(report.getBytesPerPage(), greaterThan(0L));
+        // Finished builds are cached after the first page, only the job page is asked for again
+        assertThat(report.getJenkinsCallsPerPage(), lessThan(2.0));
+    }
+
+    @Test
+    public void injectedErrorsAreReported() throws Exception {
+        fakeJenkins = new FakeJenkins(10, 20, 0, 1);
+
+        Report report = LoadTest.run(fakeJenkins, 2, 4, 0, false);
+
+        assertThat(report.getFailures(), greaterThan(0));
+    }
+}
@@ -0,0 +1,118 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import kreyling.cragg.Main.BuildReference;
+import ratpack.exec.ExecController;
+import ratpack.exec.Promise;
+import ratpack.handling.Context;
+import ratpack.http.MediaType;
+import ratpack.test.embed.EmbeddedApp;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A Jenkins stand-in on an ephemeral port, serving the pages of {@link SyntheticReports}. Builds of {@link #JOB_PATH}
+ * are started by the build of the same number of {@code job/deploy/}, which in turn is started by
+ * {@code job/compile/}. Every answer is delayed by the given latency, and fails with a 500 at the given rate.
+ */
+class FakeJenkins implements AutoCloseable {
+    static final String JOB_PATH = "job/e2e/";
+
+    private static final List<String> UPSTREAM_JOBS = asList("e2e", "deploy", "compile");
+
+    private static final Pattern JOB_PAGE = Pattern.compile("job/([^/]+)/+api/xml");
+    private static final Pattern BUILD_PAGE = Pattern.compile("job/([^/]+)/(\\d+)/api/xml");
+    private static final Pattern OVERVIEW_PAGE =
+        Pattern.compile("job/([^/]+)/(\\d+)/cucumber-html-reports/overview-features\\.html");
+
+    private final int numberOfBuilds;
+    private final int numberOfFeatures;
+    private final long latencyMillis;
+    private final double errorRate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final EmbeddedApp embeddedApp;
+
+    FakeJenkins(int numberOfBuilds, int numberOfFeatures, long latencyMillis, double errorRate) throws Exception {
+        this.numberOfBuilds = numberOfBuilds;
+        this.numberOfFeatures = numberOfFeatures;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.embeddedApp = EmbeddedApp.fromHandler(this::handle);
+    }
+
+    String getUrl() {
+        String url = embeddedApp.getAddress().toString();
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    JobConfig getJobConfig() {
+        return JobConfig.of(getUrl(), JOB_PATH, Optional.empty());
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        embeddedApp.close();
+    }
+
+    private void handle(Context context) {
+        requests.incrementAndGet();
+        String path = context.getRequest().getPath();
+
+        delayed(context).then(nothing -> {
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                context.getResponse().status(500).send("Injected error");
+                return;
+            }
+
+            Optional<String> page = page(path);
+            if (!page.isPresent()) {
+                context.clientError(404);
+                return;
+            }
+            context.getResponse().contentType(path.endsWith(".html") ? MediaType.TEXT_HTML : "application/xml")
+                .send(page.get());
+        });
+    }
+
+    private Promise<Boolean> delayed(Context context) {
+        if (latencyMillis <= 0) return Promise.value(true);
+
+        return Promise.async(downstream -> context.get(ExecController.class).getExecutor()
+            .schedule(() -> downstream.success(true), latencyMillis, MILLISECONDS));
+    }
+
+    private Optional<String> page(String path) {
+        Matcher matcher = JOB_PAGE.matcher(path);
+        if (matcher.matches()) return Optional.of(SyntheticReports.jobPage(numberOfBuilds));
+
+        matcher = BUILD_PAGE.matcher(path);
+        if (matcher.matches()) {
+            return Optional.of(SyntheticReports.buildInformation(matcher.group(2), upstream(matcher.group(1), matcher.group(2))));
+        }
+
+        matcher = OVERVIEW_PAGE.matcher(path);
+        if (matcher.matches() && ("job/" + matcher.group(1) + "/").equals(JOB_PATH)) {
+            return Optional.of(SyntheticReports.overviewPage(numberOfFeatures, matcher.group(2)));
+        }
+
+        return Optional.empty();
+    }
+
+    private static Optional<BuildReference> upstream(String job, String buildNumber) {
+        int level = UPSTREAM_JOBS.indexOf(job);
+        if (level < 0 || level + 1 >= UPSTREAM_JOBS.size()) return Optional.empty();
+        return Optional.of(new BuildReference(buildNumber, "job/" + UPSTREAM_JOBS.get(level + 1) + "/"));
+    }
+}
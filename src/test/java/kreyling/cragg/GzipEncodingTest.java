@@ -0,0 +1,91 @@
+package kreyling.cragg;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import ratpack.stream.Streams;
+import ratpack.test.exec.ExecHarness;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+public class GzipEncodingTest {
+    @Test
+    public void chunksAreCompressedIntoOneGzipStream() throws Exception {
+        List<String> chunks = new ArrayList<>();
+        for (int row = 0; row < 500; row++) {
+            chunks.add("<tr><td class=\"passed\"><span class=\"glyphicon glyphicon-ok\"></span></td></tr>\n");
+        }
+
+        List<ByteBuf> compressed = compress(chunks);
+
+        assertThat(compressed.size(), is(chunks.size() + 1));
+        assertThat(inflate(compressed), is(String.join("", chunks)));
+    }
+
+    @Test
+    public void everyChunkCanBeInflatedOnItsOwn() throws Exception {
+        List<ByteBuf> compressed = compress(asList("<html>", "<table>"));
+
+        // A browser renders what it got so far, the first chunk alone already inflates to its input
+        assertThat(inflatePartially(compressed.get(0)), is("<html>"));
+    }
+
+    @Test
+    public void emptyStreamIsAnEmptyGzipStream() throws Exception {
+        assertThat(inflate(compress(new ArrayList<>())), is(""));
+    }
+
+    @Test
+    public void gzipIsAcceptedUnlessExcluded() {
+        assertThat(GzipEncoding.isAccepted("gzip, deflate, br"), is(true));
+        assertThat(GzipEncoding.isAccepted("deflate, GZIP;q=0.8"), is(true));
+        assertThat(GzipEncoding.isAccepted("gzip;q=0, identity"), is(false));
+        assertThat(GzipEncoding.isAccepted("br"), is(false));
+        assertThat(GzipEncoding.isAccepted((String) null), is(false));
+    }
+
+    private List<ByteBuf> compress(List<String> chunks) throws Exception {
+        return ExecHarness.yieldSingle(execution -> Streams.toList(GzipEncoding.compress(
+            Streams.publish(chunks).map(chunk -> Unpooled.copiedBuffer(chunk, UTF_8)),
+            UnpooledByteBufAllocator.DEFAULT, 6
+        ))).getValueOrThrow();
+    }
+
+    private String inflate(List<ByteBuf> compressed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (ByteBuf chunk : compressed) {
+            chunk.readBytes(bytes, chunk.readableBytes());
+        }
+        return read(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())), Integer.MAX_VALUE);
+    }
+
+    private String inflatePartially(ByteBuf chunk) throws IOException {
+        byte[] bytes = new byte[chunk.readableBytes()];
+        chunk.readBytes(bytes);
+        InputStream inflated = new GZIPInputStream(new ByteArrayInputStream(bytes));
+        return read(inflated, "<html>".length());
+    }
+
+    private String read(InputStream inputStream, int maxLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while (bytes.size() < maxLength && (length = inputStream.read(buffer, 0, Math.min(buffer.length, maxLength - bytes.size()))) != -1) {
+            bytes.write(buffer, 0, length);
+        }
+        return new String(bytes.toByteArray(), UTF_8);
+    }
+}
@@ -0,0 +1,173 @@
+package kreyling.cragg;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.JenkinsClient.Endpoint;
+import kreyling.cragg.JenkinsClient.LatencySamples;
+import kreyling.cragg.JenkinsClient.UnexpectedStatusException;
+import ratpack.exec.ExecResult;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.test.exec.ExecHarness;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+public class JenkinsClientTest {
+    AtomicInteger requests = new AtomicInteger();
+
+    @Test
+    public void hedgeWinsAgainstSlowFirstRequest() throws Exception {
+        String text = ExecHarness.yieldSingle(execution -> JenkinsClient.hedge(
+            answers(delayed("first", 5000), delayed("hedge", 0)), 50, () -> true, Endpoint.BUILD)
+        ).getValueOrThrow();
+
+        assertThat(text, is("hedge"));
+        assertThat(requests.get(), is(2));
+    }
+
+    @Test
+    public void fastFirstRequestIsNotHedged() throws Exception {
+        String text = ExecHarness.yieldSingle(execution -> JenkinsClient.hedge(
+            answers(delayed("first", 0), delayed("hedge", 0)), 1000, () -> true, Endpoint.BUILD)
+        ).getValueOrThrow();
+
+        assertThat(text, is("first"));
+        assertThat(requests.get(), is(1));
+    }
+
+    @Test
+    public void noHedgeWhileRequestsAreQueued() throws Exception {
+        String text = ExecHarness.yieldSingle(execution -> JenkinsClient.hedge(
+            answers(delayed("first", 200), delayed("hedge", 0)), 50, () -> false, Endpoint.BUILD)
+        ).getValueOrThrow();
+
+        assertThat(text, is("first"));
+        assertThat(requests.get(), is(1));
+    }
+
+    @Test
+    public void errorOfFirstRequestWaitsForRunningHedge() throws Exception {
+        String text = ExecHarness.yieldSingle(execution -> JenkinsClient.hedge(
+            answers(failed(200), delayed("hedge", 300)), 50, () -> true, Endpoint.BUILD)
+        ).getValueOrThrow();
+
+        assertThat(text, is("hedge"));
+    }
+
+    @Test
+    public void errorIsTheAnswerIfNoOtherRequestIsRunning() throws Exception {
+        ExecResult<String> result = ExecHarness.yieldSingle(execution -> JenkinsClient.hedge(
+            answers(failed(0), delayed("hedge", 0)), 1000, () -> true, Endpoint.BUILD)
+        );
+
+        assertThat(result.getThrowable(), instanceOf(IllegalStateException.class));
+        assertThat(requests.get(), is(1));
+    }
+
+    @Test
+    public void noHedgeBelowTheSampleMinimum() {
+        LatencySamples latencySamples = new LatencySamples();
+        for (int i = 1; i < 20; i++) {
+            latencySamples.add(i);
+        }
+        assertThat(latencySamples.percentile(0.95), is(Optional.empty()));
+
+        latencySamples.add(20);
+        assertThat(latencySamples.percentile(0.95), is(Optional.of(19L)));
+    }
+
+    @Test
+    public void percentileIsOfTheLatestSamples() {
+        LatencySamples latencySamples = new LatencySamples();
+        for (int i = 0; i < 200; i++) {
+            latencySamples.add(1000);
+        }
+        for (int i = 0; i < 200; i++) {
+            latencySamples.add(10);
+        }
+
+        assertThat(latencySamples.percentile(0.95), is(Optional.of(10L)));
+    }
+
+    @Test
+    public void gzipBodyIsInflatedWithItsCharset() throws Exception {
+        String text = "<feature>Überweisung</feature>";
+
+        assertThat(JenkinsClient.inflate(gzip(text, ISO_8859_1), "ISO-8859-1"), is(text));
+    }
+
+    @Test
+    public void gzipBodyWithoutCharsetIsInflatedAsUtf8() throws Exception {
+        String text = "<feature>Überweisung</feature>";
+
+        assertThat(JenkinsClient.inflate(gzip(text, UTF_8), null), is(text));
+    }
+
+    @Test
+    public void pagesAreFetched() throws Exception {
+        try (FakeJenkins fakeJenkins = new FakeJenkins(3, 1, 0, 0)) {
+            ExecResult<String> result = get(fakeJenkins, "job/e2e/api/xml");
+
+            assertThat(result.isSuccess(), is(true));
+        }
+    }
+
+    @Test
+    public void errorPagesFail() throws Exception {
+        try (FakeJenkins fakeJenkins = new FakeJenkins(3, 1, 0, 0)) {
+            ExecResult<String> result = get(fakeJenkins, "job/e2e/1/no-such-page");
+
+            assertThat(result.getThrowable(), instanceOf(UnexpectedStatusException.class));
+            assertThat(((UnexpectedStatusException) result.getThrowable()).statusCode, is(404));
+        }
+
+        try (FakeJenkins fakeJenkins = new FakeJenkins(3, 1, 0, 1)) {
+            ExecResult<String> result = get(fakeJenkins, "job/e2e/api/xml");
+
+            assertThat(((UnexpectedStatusException) result.getThrowable()).statusCode, is(500));
+        }
+    }
+
+    private ExecResult<String> get(FakeJenkins fakeJenkins, String path) throws Exception {
+        JenkinsClient jenkinsClient = new JenkinsClient(JenkinsClient.createHttpClient());
+        return ExecHarness.yieldSingle(execution -> jenkinsClient.getText(fakeJenkins.getUrl() + path, Endpoint.JOB));
+    }
+
+    private InputStream gzip(String text, Charset charset) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(charset));
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @SafeVarargs
+    private final Supplier<Promise<String>> answers(Supplier<Promise<String>>... answers) {
+        return () -> answers[requests.getAndIncrement()].get();
+    }
+
+    private Supplier<Promise<String>> delayed(String text, long delayMillis) {
+        return () -> Promise.async(downstream -> Execution.current().getController().getExecutor()
+            .schedule(() -> downstream.success(text), delayMillis, MILLISECONDS));
+    }
+
+    private Supplier<Promise<String>> failed(long delayMillis) {
+        return () -> Promise.async(downstream -> Execution.current().getController().getExecutor()
+            .schedule(() -> downstream.error(new IllegalStateException("Jenkins is down")), delayMillis, MILLISECONDS));
+    }
+}
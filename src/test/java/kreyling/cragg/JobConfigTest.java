@@ -0,0 +1,74 @@
+package kreyling.cragg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+public class JobConfigTest {
+
+    @Test
+    public void jobsInheritDefaultsAndMayOverrideThem() throws IOException {
+        List<JobConfig> jobConfigs = JobConfig.fromProperties(properties(
+            "host=https://jenkins.example.com/\n" +
+            "scmRepositoryBaseUrl=https://scm.example.com/projects/\n" +
+            "jobs=e2e, smoke\n" +
+            "job.e2e.path=job/e2e-tests/\n" +
+            "job.e2e.cucumberJsonPath=artifact/target/cucumber.json\n" +
+            "job.smoke.path=job/smoke-tests/\n" +
+            "job.smoke.host=https://other-jenkins.example.com/\n"
+        ));
+
+        assertThat(jobConfigs.size(), is(2));
+
+        JobConfig e2e = jobConfigs.get(0);
+        assertThat(e2e.getName(), is("e2e"));
+        assertThat(e2e.getHost(), is("https://jenkins.example.com/"));
+        assertThat(e2e.getJenkinsJob(), is("job/e2e-tests/"));
+        assertThat(e2e.getScmRepositoryBaseUrl(), is(Optional.of("https://scm.example.com/projects/")));
+        assertThat(e2e.getCucumberJsonPath(), is(Optional.of("artifact/target/cucumber.json")));
+
+        JobConfig smoke = jobConfigs.get(1);
+        assertThat(smoke.getName(), is("smoke"));
+        assertThat(smoke.getHost(), is("https://other-jenkins.example.com/"));
+        assertThat(smoke.getCucumberJsonPath(), is(Main.CUCUMBER_JSON_PATH));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jobWithoutPathIsRejected() throws IOException {
+        JobConfig.fromProperties(properties("host=https://jenkins.example.com/\njobs=e2e\n"));
+    }
+
+    @Test
+    public void jobFromCommandLineIsNamedAfterTheJenkinsJob() {
+        JobConfig jobConfig = JobConfig.of("https://jenkins.example.com/", "job/e2e-tests/", Optional.empty());
+
+        assertThat(jobConfig.getName(), is("e2e-tests"));
+    }
+
+    @Test
+    public void jobInFolderIsNamedWithoutSlashes() {
+        JobConfig jobConfig = JobConfig.of("https://jenkins.example.com/", "job/team/job/e2e-tests/", Optional.empty());
+
+        assertThat(jobConfig.getName(), is("team-e2e-tests"));
+        assertThat(jobConfig.getJenkinsJob(), is("job/team/job/e2e-tests/"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jobNameWithSlashIsRejected() throws IOException {
+        JobConfig.fromProperties(properties(
+            "host=https://jenkins.example.com/\njobs=team/e2e\njob.team/e2e.path=job/team/job/e2e/\n"));
+    }
+
+    private Properties properties(String text) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(text));
+        return properties;
+    }
+}
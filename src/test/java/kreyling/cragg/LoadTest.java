@@ -0,0 +1,158 @@
+package kreyling.cragg;
+
+import static java.util.Collections.singletonList;
+
+import lombok.Value;
+import ratpack.server.RatpackServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent dashboard requests against the server of {@link Main}, backed by a {@link FakeJenkins}. Reports the
+ * latency of the first page and the percentiles of all others, throughput and the Jenkins calls per page.
+ */
+public class LoadTest {
+    public static final int BUILDS = Integer.getInteger("cragg.loadTest.builds", 100);
+    public static final int FEATURES = Integer.getInteger("cragg.loadTest.features", 200);
+    public static final long JENKINS_LATENCY_MILLIS = Long.getLong("cragg.loadTest.jenkinsLatencyMillis", 50);
+    public static final double JENKINS_ERROR_RATE =
+        Double.parseDouble(System.getProperty("cragg.loadTest.jenkinsErrorRate", "0"));
+    public static final int CONCURRENCY = Integer.getInteger("cragg.loadTest.concurrency", 10);
+    public static final int REQUESTS = Integer.getInteger("cragg.loadTest.requests", 200);
+    public static final int POLL_INTERVAL_SECONDS = Integer.getInteger("cragg.loadTest.pollIntervalSeconds", 0);
+    public static final boolean GZIP = Boolean.parseBoolean(System.getProperty("cragg.loadTest.gzip", "true"));
+
+    public static void main(String... args) throws Exception {
+        try (FakeJenkins fakeJenkins = new FakeJenkins(BUILDS, FEATURES, JENKINS_LATENCY_MILLIS, JENKINS_ERROR_RATE)) {
+            System.out.println(run(fakeJenkins, CONCURRENCY, REQUESTS, POLL_INTERVAL_SECONDS, GZIP));
+        }
+    }
+
+    static Report run(FakeJenkins fakeJenkins, int concurrency, int requests, int pollIntervalSeconds, boolean gzip)
+        throws Exception {
+        RatpackServer server = Main.createServer(singletonList(fakeJenkins.getJobConfig()), SnapshotStore.disabled(),
+            new JenkinsClient(JenkinsClient.createHttpClient()), pollIntervalSeconds, 0);
+        server.start();
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            URL dashboard = new URL("http", "localhost", server.getBindPort(), "/");
+
+            // With empty caches, every build is fetched from Jenkins
+            Response firstResponse = get(dashboard, gzip);
+            long jenkinsRequestsBefore = fakeJenkins.getRequests();
+
+            long[] latencyNanos = new long[requests];
+            AtomicInteger nextRequest = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            AtomicLong bytes = new AtomicLong();
+
+            long startedAt = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < concurrency; client++) {
+                futures.add(clients.submit(() -> {
+                    int request;
+                    while ((request = nextRequest.getAndIncrement()) < requests) {
+                        Response response = get(dashboard, gzip);
+                        latencyNanos[request] = response.latencyNanos;
+                        bytes.addAndGet(response.bytes);
+                        if (response.status != 200) failures.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedNanos = System.nanoTime() - startedAt;
+
+            Arrays.sort(latencyNanos);
+            return new Report(
+                requests,
+                failures.get() + (firstResponse.status != 200 ? 1 : 0),
+                millis(firstResponse.latencyNanos),
+                millis(percentile(latencyNanos, 0.5)),
+                millis(percentile(latencyNanos, 0.99)),
+                requests / (elapsedNanos / 1e9),
+                (double) (fakeJenkins.getRequests() - jenkinsRequestsBefore) / requests,
+                requests == 0 ? 0 : bytes.get() / requests
+            );
+        } finally {
+            clients.shutdownNow();
+            clients.awaitTermination(10, TimeUnit.SECONDS);
+            server.stop();
+        }
+    }
+
+    @Value
+    static class Report {
+        int requests;
+        int failures;
+        double firstPageMillis;
+        double p50Millis;
+        double p99Millis;
+        double pagesPerSecond;
+        double jenkinsCallsPerPage;
+        long bytesPerPage;
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d failed%n" +
+                    "first page: %.1f ms, p50: %.1f ms, p99: %.1f ms%n" +
+                    "throughput: %.1f pages/s, %.1f Jenkins calls per page, %d bytes per page",
+                requests, failures, firstPageMillis, p50Millis, p99Millis, pagesPerSecond, jenkinsCallsPerPage,
+                bytesPerPage);
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final long latencyNanos;
+        final long bytes;
+
+        Response(int status, long latencyNanos, long bytes) {
+            this.status = status;
+            this.latencyNanos = latencyNanos;
+            this.bytes = bytes;
+        }
+    }
+
+    private static Response get(URL url, boolean gzip) throws IOException {
+        long startedAt = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (gzip) connection.setRequestProperty("Accept-Encoding", "gzip");
+
+        int status = connection.getResponseCode();
+        long bytes = 0;
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[8192];
+            int length;
+            while (body != null && (length = body.read(buffer)) != -1) {
+                bytes += length;
+            }
+        }
+        return new Response(status, System.nanoTime() - startedAt, bytes);
+    }
+
+    private static long percentile(long[] sortedValues, double percentile) {
+        if (sortedValues.length == 0) return 0;
+        int index = (int) Math.ceil(percentile * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, index)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
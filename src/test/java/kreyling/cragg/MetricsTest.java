@@ -0,0 +1,58 @@
+package kreyling.cragg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+import kreyling.cragg.Metrics.Counter;
+import kreyling.cragg.Metrics.Histogram;
+
+import org.junit.Test;
+
+public class MetricsTest {
+    Metrics metrics = new Metrics();
+
+    @Test
+    public void countersAreWrittenPerLabel() {
+        Counter counter = metrics.counter("cragg_test_total", "Test counter", "cache", "result");
+        counter.inc("build", "hit");
+        counter.inc("build", "hit");
+        counter.inc("build", "miss");
+
+        String text = metrics.scrape();
+
+        assertThat(text, containsString("# TYPE cragg_test_total counter\n"));
+        assertThat(text, containsString("cragg_test_total{cache=\"build\",result=\"hit\"} 2\n"));
+        assertThat(text, containsString("cragg_test_total{cache=\"build\",result=\"miss\"} 1\n"));
+    }
+
+    @Test
+    public void histogramBucketsAreCumulative() {
+        Histogram histogram = metrics.histogram("cragg_test_seconds", "Test histogram", "page");
+        histogram.observeNanos(2_000_000, "job");
+        histogram.observeNanos(2_000_000_000L, "job");
+
+        String text = metrics.scrape();
+
+        assertThat(text, containsString("cragg_test_seconds_bucket{page=\"job\",le=\"0.001\"} 0\n"));
+        assertThat(text, containsString("cragg_test_seconds_bucket{page=\"job\",le=\"0.0025\"} 1\n"));
+        assertThat(text, containsString("cragg_test_seconds_bucket{page=\"job\",le=\"2.5\"} 2\n"));
+        assertThat(text, containsString("cragg_test_seconds_bucket{page=\"job\",le=\"+Inf\"} 2\n"));
+        assertThat(text, containsString("cragg_test_seconds_sum{page=\"job\"} 2.002\n"));
+        assertThat(text, containsString("cragg_test_seconds_count{page=\"job\"} 2\n"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void namesAreRegisteredOnce() {
+        metrics.gauge("cragg_test_gauge", "Test gauge", () -> 1);
+        metrics.gauge("cragg_test_gauge", "Test gauge", () -> 2);
+    }
+
+    @Test
+    public void gaugesAreSampledOnScrape() {
+        int[] value = {1};
+        metrics.gauge("cragg_test_gauge", "Test gauge", () -> value[0]);
+        value[0] = 5;
+
+        assertThat(metrics.scrape(), containsString("cragg_test_gauge 5.0\n"));
+    }
+}
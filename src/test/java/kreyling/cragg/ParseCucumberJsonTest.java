@@ -0,0 +1,59 @@
+package kreyling.cragg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class ParseCucumberJsonTest {
+    CucumberJsonParser cucumberJsonParser = new CucumberJsonParser();
+    BuildReference testBuildReference = new BuildReference("1494", "job/some-project/");
+
+    @Test
+    public void countsStepsPerFeature() {
+        TestReport testReport = cucumberJsonParser.parse(readTestFile("cucumber.json"), testBuildReference);
+
+        assertThat(testReport.buildNumber, is("1494"));
+        assertThat(testReport.getTestReportLines().size(), is(2));
+
+        TestReportLine passed = testReport.getTestReportLines().get(0);
+        assertThat(passed.getFeature().getName(), is("Anmeldung"));
+        assertThat(passed.getFeature().getLink(), is("report-feature_features-anmeldung-feature.html"));
+        assertThat(passed.getTotalSteps(), is("2"));
+        assertThat(passed.getFailedSteps(), is("0"));
+        assertThat(passed.getSkippedSteps(), is("0"));
+        assertThat(passed.getStatus(), is("Passed"));
+
+        TestReportLine failed = testReport.getTestReportLines().get(1);
+        assertThat(failed.getFeature().getName(), is("Überweisung"));
+        assertThat(failed.getTotalSteps(), is("4"));
+        assertThat(failed.getFailedSteps(), is("1"));
+        assertThat(failed.getSkippedSteps(), is("1"));
+        assertThat(failed.getStatus(), is("Failed"));
+    }
+
+    @Test
+    public void missingArtifactHasNoReport() {
+        TestReport testReport = cucumberJsonParser.parse("<html><body>Not Found</body></html>", testBuildReference);
+
+        assertThat(testReport, is(nullValue()));
+    }
+
+    private String readTestFile(String filename) {
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(getClass().getResource("/cucumberjson/" + filename).toURI()));
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package kreyling.cragg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.JenkinsRequestProcessor;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+public class ParseOverviewPageTest {
+    JenkinsRequestProcessor jenkinsRequestProcessor = new JenkinsRequestProcessor(null, null, Optional.empty(), null, null);
+    OverviewPageParser overviewPageParser = new OverviewPageParser();
+    BuildReference testBuildReference = new BuildReference("1494", "job/some-project/");
+
+    @Test
+    public void extractsFeatureRows() {
+        TestReport testReport = overviewPageParser.parse(readTestFile("overview-features.html"), testBuildReference);
+
+        assertThat(testReport.buildNumber, is("1494"));
+        assertThat(testReport.getTestReportLines().size(), is(3));
+
+        TestReportLine testReportLine = testReport.getTestReportLines().get(1);
+        assertThat(testReportLine.getFeature().getName(), is("Überweisung & Daueraufträge"));
+        assertThat(testReportLine.getFeature().getLink(), is("report-feature_features-ueberweisung-feature.html"));
+        assertThat(testReportLine.getTotalSteps(), is("20"));
+        assertThat(testReportLine.getFailedSteps(), is("2"));
+        assertThat(testReportLine.getSkippedSteps(), is("3"));
+        assertThat(testReportLine.getStatus(), is("Failed"));
+
+        assertThat(testReport.getTestReportLines().get(2).getFeature().getName(), is("Kontoauszüge drucken"));
+    }
+
+    @Test
+    public void sameResultAsRepairedDocument() {
+        String html = readTestFile("overview-features.html");
+
+        TestReport streamed = overviewPageParser.parse(html, testBuildReference);
+        TestReport parsedAsDocument = jenkinsRequestProcessor.parseTestReport(
+            jenkinsRequestProcessor.repairHtml(html), testBuildReference);
+
+        assertThat(streamed, is(parsedAsDocument));
+        for (int i = 0; i < streamed.getTestReportLines().size(); i++) {
+            assertThat(streamed.getTestReportLines().get(i).getFeature().getLink(),
+                is(parsedAsDocument.getTestReportLines().get(i).getFeature().getLink()));
+        }
+    }
+
+    @Test
+    public void pageWithoutFeaturesHasNoReport() {
+        String html = "<html><body><p>You have no features in your cucumber report</p></body></html>";
+
+        assertThat(overviewPageParser.parse(html, testBuildReference), is(nullValue()));
+    }
+
+    @Test
+    public void pageOtherThanAReportHasNoReport() {
+        String loginPage = "<html><head><title>Jenkins</title></head><body><form><table>"
+            + "<tr><td>User</td><td><input name=\"j_username\"/></td></tr></table></form></body></html>";
+        String reportWithoutRows = "<html><head><title>Cucumber-JVM Html Reports (no 1494)</title></head>"
+            + "<body><table><tr><th>Feature</th></tr></table></body></html>";
+
+        assertThat(overviewPageParser.parse(loginPage, testBuildReference), is(nullValue()));
+        assertThat(overviewPageParser.parse(reportWithoutRows, testBuildReference), is(nullValue()));
+    }
+
+    private String readTestFile(String filename) {
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(getClass().getResource("/cucumberreports/" + filename).toURI()));
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
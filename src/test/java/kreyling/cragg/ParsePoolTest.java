@@ -0,0 +1,50 @@
+package kreyling.cragg;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+import ratpack.exec.ExecResult;
+import ratpack.test.exec.ExecHarness;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ParsePoolTest {
+    ParsePool parsePool = new ParsePool(2);
+
+    @After
+    public void shutdown() {
+        parsePool.shutdown();
+    }
+
+    @Test
+    public void pagesAreParsedOnParseThreads() throws Exception {
+        String threadName = ExecHarness.yieldSingle(execution ->
+            parsePool.parse("job", () -> Thread.currentThread().getName())
+        ).getValueOrThrow();
+
+        assertThat(threadName, startsWith("cragg-parse-"));
+    }
+
+    @Test
+    public void executionResumesWithTheResult() throws Exception {
+        int length = ExecHarness.yieldSingle(execution ->
+            parsePool.parse("job", () -> "<job/>").map(String::length)
+        ).getValueOrThrow();
+
+        assertThat(length, is(6));
+    }
+
+    @Test
+    public void parseErrorsFailThePromise() throws Exception {
+        ExecResult<Object> result = ExecHarness.yieldSingle(execution ->
+            parsePool.parse("build", () -> {
+                throw new IllegalStateException("Not XML");
+            })
+        );
+
+        assertThat(result.getThrowable(), instanceOf(IllegalStateException.class));
+    }
+}
@@ -0,0 +1,91 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.ScmChange;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Optional;
+
+public class SnapshotStoreTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    static final String HOST = "https://jenkins.example.com/";
+
+    BuildReference testBuildReference = new BuildReference("1494", "job/some-project/");
+
+    @Test
+    public void buildSurvivesRoundTrip() {
+        SnapshotStore snapshotStore = SnapshotStore.of(temporaryFolder.getRoot().getPath(), 90);
+        Build build = new Build(
+            testBuildReference,
+            new Duration(2715217),
+            new DateTime(1484297587490L),
+            Optional.empty(),
+            asList(new BuildReference("1518", "job/some-other-project/")),
+            emptyList(),
+            asList(
+                new ScmChange("ab79615d", "Mustermann, Max", "ABCD-3656 Überschrift\n - Erste Zeile"),
+                new ScmChange("ef0ae6de", "Exemplaris, Enrico", null)
+            ),
+            false
+        );
+
+        snapshotStore.writeBuild(HOST, build);
+
+        assertThat(snapshotStore.readBuild(HOST, testBuildReference), is(Optional.of(build)));
+    }
+
+    @Test
+    public void testReportSurvivesRoundTrip() {
+        SnapshotStore snapshotStore = SnapshotStore.of(temporaryFolder.getRoot().getPath(), 90);
+        TestReport testReport = new TestReport("1494", asList(
+            new TestReportLine(new Feature("Anmeldung", "features-anmeldung-feature.html"), "0", "0", "12", "Passed"),
+            new TestReportLine(new Feature("Überweisung", "features-ueberweisung-feature.html"), "2", "3", "20", "Failed")
+        ));
+
+        snapshotStore.writeTestReport(HOST, testBuildReference, testReport);
+
+        assertThat(snapshotStore.readTestReport(HOST, testBuildReference), is(Optional.of(testReport)));
+    }
+
+    @Test
+    public void missingRecordIsEmpty() {
+        SnapshotStore snapshotStore = SnapshotStore.of(temporaryFolder.getRoot().getPath(), 90);
+
+        assertThat(snapshotStore.readBuild(HOST, testBuildReference), is(Optional.empty()));
+        assertThat(snapshotStore.readTestReport(HOST, testBuildReference), is(Optional.empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void recordsStayInTheJobDirectory() {
+        SnapshotStore snapshotStore = SnapshotStore.of(temporaryFolder.getRoot().getPath(), 90);
+
+        snapshotStore.readBuild(HOST, new BuildReference("../../x", "job/some-project/"));
+    }
+
+    @Test
+    public void recordsAreKeptPerHost() {
+        SnapshotStore snapshotStore = SnapshotStore.of(temporaryFolder.getRoot().getPath(), 90);
+        TestReport testReport = new TestReport("1494", emptyList());
+
+        snapshotStore.writeTestReport(HOST, testBuildReference, testReport);
+
+        assertThat(snapshotStore.readTestReport("https://other-jenkins.example.com/", testBuildReference),
+            is(Optional.empty()));
+    }
+}
@@ -0,0 +1,61 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.JenkinsRequestProcessor;
+
+import org.jdom2.input.SAXBuilder;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+public class StreamingXmlParserTest {
+    JenkinsRequestProcessor jenkinsRequestProcessor = new JenkinsRequestProcessor(null, null, Optional.empty(), null, null);
+    JenkinsXmlParser jenkinsXmlParser = new JenkinsXmlParser();
+    BuildReference testBuildReference = new BuildReference("testrun", null);
+
+    @Test
+    public void sameBuildsAsXPath() throws Exception {
+        List<String> filenames = asList(
+            "startedByUser.xml", "startedByJob.xml", "startedByTwoDifferentJobs.xml", "startedByScmChange.xml");
+
+        for (String filename : filenames) {
+            String text = readTestFile("/buildinformation/" + filename);
+
+            Build streamed = jenkinsXmlParser.parseBuildInfo(text, testBuildReference);
+            Build parsedWithXPath = jenkinsRequestProcessor.parseBuildInfo(
+                new SAXBuilder().build(new StringReader(text)), testBuildReference);
+
+            assertThat(filename, streamed, is(parsedWithXPath));
+        }
+    }
+
+    @Test
+    public void buildNumbersWithoutFirstAndLastSuccessfulBuild() {
+        List<BuildReference> buildReferences = jenkinsXmlParser.parseBuildNumbersFromJob(
+            readTestFile("/jobinformation/job.xml"), "job/some-project/");
+
+        assertThat(buildReferences, is(asList(
+            new BuildReference("1496", "job/some-project/"),
+            new BuildReference("1494", "job/some-project/")
+        )));
+    }
+
+    private String readTestFile(String path) {
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(getClass().getResource(path).toURI()));
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
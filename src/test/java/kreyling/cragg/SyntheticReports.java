@@ -0,0 +1,148 @@
+package kreyling.cragg;
+
+import static java.util.Collections.emptyList;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+import ratpack.func.Pair;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Generated reports and Jenkins pages of configurable size, deterministic for the same arguments. Used by the
+ * benchmarks and by {@link FakeJenkins}.
+ */
+class SyntheticReports {
+    static final String JOB_PATH = "job/synthetic/";
+
+    static List<Pair<Build, TestReport>> buildsWithTestReports(int numberOfFeatures, int numberOfBuilds) {
+        List<Pair<Build, TestReport>> pairs = new ArrayList<>(numberOfBuilds);
+        for (int build = 0; build < numberOfBuilds; build++) {
+            String buildNumber = String.valueOf(1000 + build);
+            pairs.add(Pair.of(build(buildNumber), testReport(numberOfFeatures, buildNumber)));
+        }
+        return pairs;
+    }
+
+    static Build build(String buildNumber) {
+        return new Build(
+            new BuildReference(buildNumber, JOB_PATH),
+            new Duration(2715217),
+            new DateTime(1484297587490L),
+            Optional.empty(),
+            emptyList(),
+            emptyList(),
+            emptyList(),
+            false
+        );
+    }
+
+    static TestReport testReport(int numberOfFeatures, String buildNumber) {
+        Random random = new Random(Long.parseLong(buildNumber));
+
+        List<TestReportLine> testReportLines = new ArrayList<>(numberOfFeatures);
+        for (int feature = 0; feature < numberOfFeatures; feature++) {
+            int totalSteps = 10 + feature % 20;
+            boolean failed = random.nextInt(10) == 0;
+            testReportLines.add(new TestReportLine(
+                new Feature(featureName(feature), featureLink(feature)),
+                failed ? "1" : "0",
+                failed ? String.valueOf(random.nextInt(totalSteps - 1)) : "0",
+                String.valueOf(totalSteps),
+                failed ? "Failed" : "Passed"
+            ));
+        }
+        return new TestReport(buildNumber, testReportLines);
+    }
+
+    static String overviewPage(int numberOfFeatures, String buildNumber) {
+        TestReport testReport = testReport(numberOfFeatures, buildNumber);
+
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n");
+        html.append("<meta http-equiv=\"content-type\" content=\"text/html; charset=utf-8\" />\n");
+        html.append("<title>Cucumber-JVM Html Reports  - Features Overview (no ").append(buildNumber).append(")</title>\n");
+        html.append("</head>\n<body>\n<table class=\"stats-table table-hover\">\n<tbody>\n");
+        for (TestReportLine testReportLine : testReport.getTestReportLines()) {
+            int failedSteps = testReportLine.getFailedStepsInt();
+            int skippedSteps = testReportLine.getSkippedStepsInt();
+            int totalSteps = testReportLine.getTotalStepsInt();
+            html.append("<tr>\n");
+            html.append("<td class=\"tagname\"><a href=\"").append(testReportLine.getFeature().getLink()).append("\">")
+                .append(testReportLine.getFeature().getName()).append("</a></td>\n");
+            html.append("<td>3</td>\n<td class=\"passed\">3</td>\n<td class=\"\">0</td>\n");
+            html.append("<td>").append(totalSteps).append("</td>\n");
+            html.append("<td class=\"passed\">").append(totalSteps - failedSteps - skippedSteps).append("</td>\n");
+            html.append("<td class=\"failed\">").append(failedSteps).append("</td>\n");
+            html.append("<td class=\"skipped\">").append(skippedSteps).append("</td>\n");
+            html.append("<td class=\"\">0</td>\n<td class=\"\">0</td>\n");
+            html.append("<td class=\"duration\" data-value=\"1532000000\">1s&nbsp;532ms</td>\n");
+            html.append("<td class=\"").append(testReportLine.getStatus().toLowerCase()).append("\">")
+                .append(testReportLine.getStatus()).append("</td>\n");
+            html.append("</tr>\n");
+        }
+        html.append("</tbody>\n</table>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    // Builds numbered from 1000, newest first as listed by Jenkins. The dashboard leaves out the first and the last
+    // successful build, i.e. the oldest and the newest one here.
+    static String jobPage(int numberOfBuilds) {
+        int firstBuild = 1000;
+        int lastBuild = firstBuild + numberOfBuilds - 1;
+
+        StringBuilder xml = new StringBuilder();
+        xml.append("<freeStyleProject _class=\"hudson.model.FreeStyleProject\">\n");
+        for (int build = lastBuild; build >= firstBuild; build--) {
+            xml.append("<build _class=\"hudson.model.FreeStyleBuild\"><number>").append(build).append("</number></build>\n");
+        }
+        xml.append("<firstBuild _class=\"hudson.model.FreeStyleBuild\"><number>").append(firstBuild)
+            .append("</number></firstBuild>\n");
+        xml.append("<lastSuccessfulBuild _class=\"hudson.model.FreeStyleBuild\"><number>").append(lastBuild)
+            .append("</number></lastSuccessfulBuild>\n");
+        xml.append("</freeStyleProject>\n");
+        return xml.toString();
+    }
+
+    static String buildInformation(String buildNumber, Optional<BuildReference> upstreamBuildReference) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<freeStyleBuild _class=\"hudson.model.FreeStyleBuild\">\n");
+        xml.append("<action _class=\"hudson.model.CauseAction\">\n");
+        if (upstreamBuildReference.isPresent()) {
+            xml.append("<cause _class=\"hudson.model.Cause$UpstreamCause\">");
+            xml.append("<upstreamBuild>").append(upstreamBuildReference.get().number).append("</upstreamBuild>");
+            xml.append("<upstreamUrl>").append(upstreamBuildReference.get().jobPath).append("</upstreamUrl>");
+            xml.append("</cause>\n");
+        } else {
+            xml.append("<cause _class=\"hudson.model.Cause$UserIdCause\"><userName>Mustermann, Max</userName></cause>\n");
+        }
+        xml.append("</action>\n");
+        xml.append("<building>false</building>\n");
+        xml.append("<duration>2715217</duration>\n");
+        xml.append("<timestamp>1484297587490</timestamp>\n");
+        xml.append("<changeSet _class=\"hudson.plugins.git.GitChangeSetList\">");
+        xml.append("<item _class=\"hudson.plugins.git.GitChangeSet\"><commitId>").append(buildNumber)
+            .append("</commitId><author><fullName>Mustermann, Max</fullName></author>")
+            .append("<comment>ABCD-").append(buildNumber).append(" Änderung</comment></item>");
+        xml.append("</changeSet>\n");
+        xml.append("</freeStyleBuild>\n");
+        return xml.toString();
+    }
+
+    private static String featureName(int feature) {
+        return String.format("Funktionalität %05d", feature);
+    }
+
+    private static String featureLink(int feature) {
+        return String.format("report-feature_features-feature-%05d-feature.html", feature);
+    }
+}
@@ -0,0 +1,63 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.NullBuild;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+import ratpack.func.Pair;
+
+import org.junit.Test;
+
+public class TestResultMatrixTest {
+
+    @Test
+    public void buildsAreSortedNumericallyAndFeaturesByName() {
+        TestResultMatrix testResultMatrix = TestResultMatrix.of(asList(
+            pair("100", line("Überweisung", "2", "20", "Failed")),
+            pair("99", line("Anmeldung", "0", "12", "Passed"), line("Überweisung", "0", "20", "Passed"))
+        ));
+
+        assertThat(testResultMatrix.getNumberOfBuilds(), is(2));
+        assertThat(testResultMatrix.getTestReport(0).buildNumber, is("99"));
+        assertThat(testResultMatrix.getTestReport(1).buildNumber, is("100"));
+
+        assertThat(testResultMatrix.getNumberOfFeatures(), is(2));
+        assertThat(testResultMatrix.getFeature(0).getName(), is("Anmeldung"));
+        assertThat(testResultMatrix.getFeature(1).getName(), is("Überweisung"));
+
+        assertThat(testResultMatrix.getStatus(1, 1), is("Failed"));
+        assertThat(testResultMatrix.getStatusCssClass(1, 1), is("failed"));
+        assertThat(testResultMatrix.getFailedSteps(1, 1), is(2));
+        assertThat(testResultMatrix.getTotalSteps(1, 1), is(20));
+    }
+
+    @Test
+    public void featureMissingInABuildHasNoResult() {
+        TestResultMatrix testResultMatrix = TestResultMatrix.of(asList(
+            pair("1", line("Anmeldung", "0", "12", "Passed")),
+            pair("2", line("Überweisung", "0", "20", "Passed"))
+        ));
+
+        assertThat(testResultMatrix.hasResult(0, 0), is(true));
+        assertThat(testResultMatrix.hasResult(0, 1), is(false));
+        assertThat(testResultMatrix.getStatus(0, 1), is(""));
+        assertThat(testResultMatrix.getTotalSteps(0, 1), is(0));
+    }
+
+    private Pair<Build, TestReport> pair(String buildNumber, TestReportLine... testReportLines) {
+        return Pair.of(
+            new NullBuild(new BuildReference(buildNumber, "job/some-project/")),
+            new TestReport(buildNumber, asList(testReportLines))
+        );
+    }
+
+    private TestReportLine line(String featureName, String failedSteps, String totalSteps, String status) {
+        return new TestReportLine(new Feature(featureName, featureName + ".html"), failedSteps, "0", totalSteps, status);
+    }
+}
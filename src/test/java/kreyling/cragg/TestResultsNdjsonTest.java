@@ -0,0 +1,90 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static java.util.Optional.empty;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import kreyling.cragg.Main.Feature;
+import kreyling.cragg.Main.NullBuild;
+import kreyling.cragg.Main.TestReport;
+import kreyling.cragg.Main.TestReportLine;
+import kreyling.cragg.TestResultsNdjson.Query;
+import ratpack.func.Pair;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class TestResultsNdjsonTest {
+    TestResultMatrix testResultMatrix = TestResultMatrix.of(asList(
+        pair("9", line("Anmeldung", "0", "Passed"), line("Überweisung", "0", "Passed"), line("Umsätze", "0", "Passed")),
+        pair("10", line("Anmeldung", "2", "Failed"), line("Überweisung", "0", "Passed"))
+    ));
+
+    @Test
+    public void oneLinePerFeatureWithItsResults() {
+        List<String> lines = lines(new Query(empty(), empty(), empty(), false, 1, 100));
+
+        assertThat(lines.size(), is(3));
+        assertThat(lines.get(0), is("{\"feature\":\"Anmeldung\",\"results\":[" +
+            "{\"build\":\"9\",\"status\":\"Passed\",\"failedSteps\":0,\"skippedSteps\":0,\"totalSteps\":10,\"systemFailure\":false}," +
+            "{\"build\":\"10\",\"status\":\"Failed\",\"failedSteps\":2,\"skippedSteps\":0,\"totalSteps\":10,\"systemFailure\":true}" +
+            "]}\n"));
+        assertThat(lines.get(1), is("{\"feature\":\"Umsätze\",\"results\":[" +
+            "{\"build\":\"9\",\"status\":\"Passed\",\"failedSteps\":0,\"skippedSteps\":0,\"totalSteps\":10,\"systemFailure\":false}" +
+            "]}\n"));
+    }
+
+    @Test
+    public void buildsAreFilteredByNumber() {
+        List<String> lines = lines(new Query(Optional.of("10"), Optional.of("10"), empty(), false, 1, 100));
+
+        assertThat(lines.get(1), is("{\"feature\":\"Umsätze\",\"results\":[]}\n"));
+    }
+
+    @Test
+    public void featuresAreFilteredByPrefixAndFailures() {
+        assertThat(features(new Query(empty(), empty(), Optional.of("U"), false, 1, 100)), contains("Umsätze"));
+        assertThat(features(new Query(empty(), empty(), empty(), true, 1, 100)), contains("Anmeldung"));
+        assertThat(features(new Query(Optional.of("1"), Optional.of("9"), empty(), true, 1, 100)), is(emptyIterable()));
+    }
+
+    @Test
+    public void featuresArePaged() {
+        assertThat(features(new Query(empty(), empty(), empty(), false, 1, 2)), contains("Anmeldung", "Umsätze"));
+        assertThat(features(new Query(empty(), empty(), empty(), false, 2, 2)), contains("Überweisung"));
+        assertThat(features(new Query(empty(), empty(), empty(), false, 3, 2)), is(emptyIterable()));
+    }
+
+    private List<String> features(Query query) {
+        List<String> features = new ArrayList<>();
+        for (String line : lines(query)) {
+            features.add(line.substring("{\"feature\":\"".length(), line.indexOf("\",")));
+        }
+        return features;
+    }
+
+    private List<String> lines(Query query) {
+        List<String> lines = new ArrayList<>();
+        TestResultsNdjson.lines(testResultMatrix, query).forEach(line -> lines.add(line.toString()));
+        return lines;
+    }
+
+    private Pair<Build, TestReport> pair(String buildNumber, TestReportLine... testReportLines) {
+        return Pair.of(
+            new NullBuild(new BuildReference(buildNumber, "job/some-project/")),
+            new TestReport(buildNumber, asList(testReportLines))
+        );
+    }
+
+    private TestReportLine line(String featureName, String failedSteps, String status) {
+        return new TestReportLine(new Feature(featureName, featureName + ".html"), failedSteps, "0", "10", status);
+    }
+}
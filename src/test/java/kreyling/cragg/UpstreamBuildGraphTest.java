@@ -0,0 +1,119 @@
+package kreyling.cragg;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import kreyling.cragg.Main.Build;
+import kreyling.cragg.Main.BuildReference;
+import ratpack.exec.Execution;
+import ratpack.exec.Promise;
+import ratpack.exec.util.ParallelBatch;
+import ratpack.test.exec.ExecHarness;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class UpstreamBuildGraphTest {
+    Map<BuildReference, Build> jenkins = new HashMap<>();
+    List<BuildReference> fetched = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void diamondIsFetchedOnceAndResolvedUpToTheMaximumDepth() throws Exception {
+        build("root", "a", "b");
+        build("a", "c");
+        build("b", "c");
+        build("c", "d");
+        build("d");
+
+        Build root = resolve("root", 2);
+
+        assertThat(numbers(root.upstreamBuilds), contains("a", "b"));
+        assertThat(numbers(root.upstreamBuilds.get(0).upstreamBuilds), contains("c"));
+        assertThat(numbers(root.upstreamBuilds.get(1).upstreamBuilds), contains("c"));
+        assertThat(root.upstreamBuilds.get(0).upstreamBuilds.get(0).upstreamBuilds, is(empty()));
+        assertThat(numbers(fetched), contains("a", "b", "c"));
+    }
+
+    @Test
+    public void deeperLevelsAreResolvedWhenConfigured() throws Exception {
+        build("root", "a");
+        build("a", "b");
+        build("b", "c");
+        build("c");
+
+        Build root = resolve("root", 3);
+
+        assertThat(numbers(root.upstreamBuilds.get(0).upstreamBuilds.get(0).upstreamBuilds), contains("c"));
+    }
+
+    @Test
+    public void cyclesAreDropped() throws Exception {
+        build("root", "a");
+        build("a", "root");
+
+        Build root = resolve("root", 2);
+
+        assertThat(numbers(root.upstreamBuilds), contains("a"));
+        assertThat(root.upstreamBuilds.get(0).upstreamBuilds, is(empty()));
+        assertThat(numbers(fetched), contains("a"));
+    }
+
+    @Test
+    public void upstreamBuildSharedByBuildsResolvedAtTheSameTimeIsFetchedOnce() throws Exception {
+        build("1", "a");
+        build("2", "a");
+        build("a");
+
+        UpstreamBuildGraph upstreamBuildGraph = new UpstreamBuildGraph(buildReference -> {
+            fetched.add(buildReference);
+            return Promise.async(downstream -> Execution.current().getController().getExecutor()
+                .schedule(() -> downstream.success(jenkins.get(buildReference)), 50, MILLISECONDS));
+        }, 2);
+
+        List<? extends Build> builds = ExecHarness.yieldSingle(execution -> ParallelBatch.of(
+            upstreamBuildGraph.resolve(jenkins.get(reference("1"))),
+            upstreamBuildGraph.resolve(jenkins.get(reference("2")))
+        ).yield()).getValueOrThrow();
+
+        assertThat(numbers(builds.get(0).upstreamBuilds), contains("a"));
+        assertThat(numbers(builds.get(1).upstreamBuilds), contains("a"));
+        assertThat(numbers(fetched), contains("a"));
+    }
+
+    private Build resolve(String number, int maxDepth) throws Exception {
+        UpstreamBuildGraph upstreamBuildGraph = new UpstreamBuildGraph(buildReference -> {
+            fetched.add(buildReference);
+            return Promise.value(jenkins.get(buildReference));
+        }, maxDepth);
+
+        return ExecHarness.yieldSingle(execution -> upstreamBuildGraph.resolve(jenkins.get(reference(number))))
+            .getValueOrThrow();
+    }
+
+    private void build(String number, String... upstreamNumbers) {
+        jenkins.put(reference(number), new Build(reference(number), null, null, Optional.empty(),
+            asList(upstreamNumbers).stream().map(this::reference).collect(toList()), emptyList(), emptyList(), false));
+    }
+
+    private BuildReference reference(String number) {
+        return new BuildReference(number, "job/some-project/");
+    }
+
+    private List<String> numbers(List<?> buildsOrReferences) {
+        return buildsOrReferences.stream()
+            .map(it -> it instanceof Build ? ((Build) it).buildReference.number : ((BuildReference) it).number)
+            .collect(toList());
+    }
+}